@@ -0,0 +1,33 @@
+package com.example.mindtrack.Config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 비슷한 프레임 묶기 설정 (sampling.coalesce.*)
+ * 새 이미지를 바로 분석 대기열에 넣지 않고 window 동안 기다리며, 그 사이 들어온 비슷한 프레임은 원본만 덮어써서
+ * 분석 요청 한 번에 가장 최근 프레임만 보낸다
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "sampling.coalesce")
+public class CoalesceProperties {
+
+    // 마지막 프레임 이후 이 시간 동안 비슷한 프레임이 없으면 대기열에 넣음 (0 이면 묶지 않고 바로 넣음)
+    private Duration window = Duration.ZERO;
+
+    // 첫 프레임 이후 이 시간이 지나면 프레임이 계속 들어와도 대기열에 넣음 (0 이면 제한 없음)
+    private Duration maxLatency = Duration.ZERO;
+
+    // 한 번 실행에 대기열로 넣을 최대 개수
+    private int flushBatch = 256;
+
+    public boolean isEnabled() {
+        return !window.isZero() && !window.isNegative();
+    }
+}
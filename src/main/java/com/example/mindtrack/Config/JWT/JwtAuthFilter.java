@@ -19,45 +19,51 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwt;
 
-    @Override
-    protected void doFilterInternal(HttpServletRequest req, HttpServletResponse res, FilterChain chain)
-            throws ServletException, IOException {
+    private static final String BEARER_PREFIX = "Bearer ";
 
-        String path = req.getRequestURI();
+    // ✅ JWT 인증 예외 경로 (로그인/회원가입, SSE 구독(토큰 쿼리 파라미터), Swagger, Electron 이미지 업로드)
+    private static final String[] PUBLIC_PATH_PREFIXES = {
+            "/api/auth",
+            "/api/suggestions/stream",
+            "/swagger-ui",
+            "/v3/api-docs"
+    };
 
-        // 인증이 필요 없는 경로는 필터 건너뛰기
-        if (path.startsWith("/api/auth")
-                || path.startsWith("/swagger-ui")
-                || path.startsWith("/v3/api-docs")
-                || path.equals("/upload-screenshot")
-                || path.startsWith("/api/suggestions/stream")) {
-            chain.doFilter(req, res);
-            return;
-        }
+    // 정확히 일치할 때만 예외 (업로드는 예외, /upload-screenshot/{ticketId} 조회는 JWT 처리)
+    private static final String[] PUBLIC_PATHS = {
+            "/upload-screenshot"
+    };
 
+    // 인증이 필요 없는 경로는 필터 건너뛰기 (경로 확인 한 번)
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest req) {
         String uri = req.getRequestURI();
-
-        // ✅ JWT 인증 예외 경로
-        if (
-                uri.startsWith("/api/auth/") ||       // 로그인, 회원가입
-                uri.startsWith("/api/suggestions/stream") || // SSE 구독
-                uri.startsWith("/swagger-ui") ||      // Swagger 문서
-                uri.startsWith("/v3/api-docs") ||     // OpenAPI
-                uri.startsWith("/upload-screenshot")  // Electron 이미지 업로드
-        ) {
-            chain.doFilter(req, res);
-            return;
+        for (String prefix : PUBLIC_PATH_PREFIXES) {
+            if (uri.startsWith(prefix))
+                return true;
         }
+        for (String path : PUBLIC_PATHS) {
+            if (uri.equals(path))
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest req, HttpServletResponse res, FilterChain chain)
+            throws ServletException, IOException {
 
         // ✅ JWT 인증 처리
         String auth = req.getHeader("Authorization");
 
-        if (auth != null && auth.startsWith("Bearer ")) {
-            String token = auth.substring(7);
+        if (auth != null && auth.startsWith(BEARER_PREFIX)) {
+            String token = auth.substring(BEARER_PREFIX.length());
             try {
-                String userId = jwt.extractUserId(token);
+                JwtUtil.JwtIdentity identity = jwt.extractIdentity(token);
                 var authentication = new UsernamePasswordAuthenticationToken(
-                        userId, null, Collections.emptyList());
+                        identity.userId(), null, Collections.emptyList());
+                // uid(Users.id) 가 있으면 details 로 전달 → 컨트롤러에서 DB 조회 없이 사용
+                authentication.setDetails(identity.uid());
                 SecurityContextHolder.getContext().setAuthentication(authentication);
             } catch (Exception ignored) {
                 // 잘못된/만료 토큰 → 인증 없이 계속 진행
@@ -1,46 +1,131 @@
 package com.example.mindtrack.Config.JWT;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*; // JWT 관련 인터페이스/클래스
 import io.jsonwebtoken.security.Keys; // 서명 키 생성 유틸
-import lombok.RequiredArgsConstructor;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtUtil {
 
+    // 사용자 PK(Users.id) claim - 요청마다 로그인 ID 로 DB 를 조회하지 않고 바로 사용
+    private static final String CLAIM_UID = "uid";
+
     private final Key key;
     private final long expirationMs;
 
+    // 서명 키가 고정이므로 한 번만 만들어 재사용 (JwtParser 는 thread-safe)
+    private final JwtParser parser;
+
+    // 토큰 SHA-256 → 검증된 claims, 토큰 만료 시각까지 보관
+    // 업로드 클라이언트처럼 같은 토큰으로 자주 호출하면 HMAC 검증 + Base64/JSON 파싱을 다시 하지 않음
+    // 검증에 실패한 토큰은 저장하지 않음, 토큰 원문 대신 digest 를 키로 써서 메모리에 토큰이 남지 않게 함
+    private final Cache<String, Claims> verifiedClaims;
+
     public JwtUtil(
             @Value("${auth.jwt.secret}") String secret,
-            @Value("${auth.jwt.exp-ms}") long expirationMs) {
+            @Value("${auth.jwt.exp-ms}") long expirationMs,
+            @Value("${auth.jwt.verified-cache-size:10000}") long verifiedCacheSize) {
         this.key = Keys.hmacShaKeyFor(secret.getBytes());
         this.expirationMs = expirationMs;
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+        this.verifiedClaims = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfter(new UntilTokenExpiry())
+                .build();
     }
 
     /** 토큰 생성: subject=userId, claim=email */
     public String generateToken(String userId, String email) {
-        return Jwts.builder()
+        return generateToken(null, userId, email);
+    }
+
+    /** 토큰 생성: subject=userId, claim=uid(Users.id), email */
+    public String generateToken(Long uid, String userId, String email) {
+        JwtBuilder builder = Jwts.builder()
                 .setSubject(userId)
-                .claim("email", email)
+                .claim("email", email);
+        if (uid != null) {
+            builder.claim(CLAIM_UID, uid);
+        }
+        return builder
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + expirationMs))
                 .signWith(key, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    /** 유효성 검증 */
+    /** 유효성 검증 (캐시 없이 항상 서명 확인) */
     public Jws<Claims> validate(String token) {
-        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
+        return parser.parseClaimsJws(token);
+    }
+
+    /** 검증된 claims - 같은 토큰은 만료 전까지 캐시된 결과 사용 */
+    public Claims verifiedClaims(String token) {
+        String digest = sha256(token);
+        Claims cached = verifiedClaims.getIfPresent(digest);
+        if (cached != null)
+            return cached;
+
+        Claims claims = validate(token).getBody();
+        verifiedClaims.put(digest, claims);
+        return claims;
     }
 
     /** 토큰에서 userId(subject) 추출 */
     public String extractUserId(String token) {
-        return validate(token).getBody().getSubject();
+        return verifiedClaims(token).getSubject();
+    }
+
+    /** 토큰에서 userId(subject) + uid 추출 (uid claim 이 없는 예전 토큰이면 uid 는 null) */
+    public JwtIdentity extractIdentity(String token) {
+        Claims claims = verifiedClaims(token);
+        Number uid = claims.get(CLAIM_UID, Number.class);
+        return new JwtIdentity(claims.getSubject(), uid == null ? null : uid.longValue());
+    }
+
+    private static String sha256(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record JwtIdentity(String userId, Long uid) {
+    }
+
+    // exp claim 까지 남은 시간만큼 보관 (exp 가 없으면 발급 기본 만료 시간)
+    private final class UntilTokenExpiry implements Expiry<String, Claims> {
+
+        @Override
+        public long expireAfterCreate(String digest, Claims claims, long currentTime) {
+            Date exp = claims.getExpiration();
+            long remainingMs = exp == null ? expirationMs : exp.getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMs));
+        }
+
+        @Override
+        public long expireAfterUpdate(String digest, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(digest, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String digest, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
-}
\ No newline at end of file
+}
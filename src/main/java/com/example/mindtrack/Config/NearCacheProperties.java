@@ -0,0 +1,66 @@
+package com.example.mindtrack.Config;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Redis 앞단 로컬 near-cache 설정 (near-cache.*)
+ * 변경은 Redis pub/sub 채널로 다른 인스턴스에 알리고, 메시지를 놓친 경우를 대비해 verify-after / ttl 로 오래된 정도를 제한한다
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "near-cache")
+public class NearCacheProperties {
+
+    // false 면 pub/sub 을 쓰지 않고 기존처럼 매번 Redis 버전 키를 확인 (상태 캐시도 사용 안 함)
+    private boolean enabled = true;
+
+    // 무효화 메시지 채널
+    private String channel = "nearcache:invalidate";
+
+    // 최근 해시 인덱스: 마지막 버전 확인 후 이 시간 동안은 Redis 버전 키를 읽지 않음 (다른 인스턴스 변경은 pub/sub 으로 받음)
+    private Duration recentVerifyAfter = Duration.ofSeconds(30);
+
+    // 사용자별 최근 해시 인덱스 전체 크기
+    private Recent recent = new Recent();
+
+    // 로그인 ID → 사용자 (업로드/SSE 연결마다 DB 조회하지 않도록)
+    private Region users = new Region(10_000, Duration.ofMinutes(10));
+
+    // 분석 상태 (screenshot:status:*) - 워커 쪽에서도 바뀌므로 keyspace notification 이 켜져 있을 때만 사용
+    private Status status = new Status();
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Region {
+        private long maxSize;
+        private Duration ttl;
+    }
+
+    @Getter
+    @Setter
+    public static class Recent {
+        // 모든 사용자 인덱스에 든 해시 수 합계 상한 (해시 하나에 약 1~1.5KB → 200000 이면 약 200~300MB)
+        private long maxWeight = 200_000;
+    }
+
+    @Getter
+    @Setter
+    public static class Status {
+        private boolean enabled = false;
+        // 시작 시 CONFIG SET notify-keyspace-events 로 필요한 이벤트(K$gx)를 켬 (관리형 Redis 처럼 막혀 있으면 직접 설정)
+        private boolean configureKeyspaceEvents = true;
+        private long maxSize = 100_000;
+        // 이벤트를 놓쳤을 때 오래된 값을 쓰는 최대 시간
+        private Duration ttl = Duration.ofSeconds(5);
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.mindtrack.Config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reactor Netty SSE 서버 설정 (sse.reactive.*)
+ * 서블릿(Tomcat) 과 별도 포트에서 SSE 스트림만 제공한다, 이벤트는 같은 SuggestionSseHub 에서 받음
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "sse.reactive")
+public class ReactiveSseProperties {
+
+    // false 면 서버를 띄우지 않음 (기존 /api/suggestions/stream 만 사용)
+    private boolean enabled = false;
+
+    private String host = "0.0.0.0";
+    private int port = 8081;
+    private String path = "/api/suggestions/stream";
+
+    // CORS 허용 Origin (CorsConfig 와 같은 값), 비어 있으면 CORS 헤더를 붙이지 않음
+    private List<String> allowedOrigins = new ArrayList<>(List.of("http://localhost:3000", "http://127.0.0.1:3000"));
+
+    // 종료 시 열린 연결이 끝나기를 기다리는 시간
+    private Duration shutdownTimeout = Duration.ofSeconds(5);
+}
@@ -1,12 +1,19 @@
 package com.example.mindtrack.Config;
 
+import com.example.mindtrack.Util.ThreadFactories;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializer;
 
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class RedisConfig {
 
@@ -32,4 +39,24 @@ public class RedisConfig {
         t.afterPropertiesSet();
         return t;
     }
+
+    /**
+     * near-cache 무효화 pub/sub + keyspace notification 구독 (NearCacheInvalidator), SSE fan-out (SseFanout)
+     * 기본 executor(SimpleAsyncTaskExecutor)는 메시지마다 새 스레드를 만들고 순서도 보장하지 않으므로
+     * 이름 붙은 단일 스레드 + 크기 제한 대기열로 받은 순서대로 처리 (리스너는 캐시 무효화/대기열 넣기만 해서 짧음)
+     * 대기열이 가득 차면 Redis 클라이언트 스레드에서 바로 처리 (메시지를 버리지 않는 대신 그때만 순서가 바뀔 수 있음)
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(
+            RedisConnectionFactory cf,
+            @Value("${redis.listener.queue-capacity:10000}") int queueCapacity) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), ThreadFactories.named("redis-listener", false),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(cf);
+        container.setTaskExecutor(executor);
+        return container;
+    }
 }
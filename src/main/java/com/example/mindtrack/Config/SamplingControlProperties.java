@@ -0,0 +1,61 @@
+package com.example.mindtrack.Config;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 사용자별 샘플링 강도 조절 설정 (sampling.control.*)
+ * 분석 대기열 깊이가 idle-depth 이하면 idle 값, busy-depth 이상이면 busy 값을 쓰고 그 사이는 선형으로 섞는다
+ * 사용자별 최근 중복 비율은 업로드 간격 힌트에만 반영한다(duplicate-backoff)
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "sampling.control")
+public class SamplingControlProperties {
+
+    // false 면 조절 전 상수(SSIM 0.95, 해밍거리 6, 해시 유사도 0.7) 그대로, 업로드 간격 힌트는 idle 값이고 거절하지 않음
+    private boolean enabled = true;
+
+    // 전역 분석 대기열 깊이 기준 (screenshot.queue.depth, reaper 가 갱신)
+    private long idleDepth = 50;
+    private long busyDepth = 500;
+
+    // 최근 중복 비율 EWMA 가중치 (0~1, 클수록 최근 업로드 결과를 크게 반영)
+    private double hitRateAlpha = 0.2;
+
+    private Level idle = new Level(0.97, 4, 0.7, Duration.ofSeconds(2));
+    private Level busy = new Level(0.90, 10, 0.7, Duration.ofSeconds(10));
+
+    // 중복 비율 1.0 일 때 업로드 간격 배수 증가분 (간격 × (1 + 중복비율 × duplicate-backoff))
+    private double duplicateBackoff = 2.0;
+    private Duration maxUploadInterval = Duration.ofSeconds(30);
+
+    // 대기열이 busy-depth 이상일 때, 직전 업로드 이후 힌트 간격 × 이 비율보다 빨리 들어온 업로드는 429 로 거절
+    // (0 이면 거절하지 않음)
+    private double throttleTolerance = 0.5;
+
+    // 사용자별 상태 (중복 비율, 마지막 업로드 시각) 를 마지막 업로드 이후 보관하는 시간
+    private Duration stateTtl = Duration.ofMinutes(30);
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Level {
+        // SSIM 재검증 기준 (이상이면 같은 화면으로 보고 기존 이미지 재사용)
+        private double ssimThreshold;
+        // 최근 해시 후보 탐색 최대 해밍거리
+        private int maxDistance;
+        // 후보 해시 유사도 하한
+        private double minHashSimilarity;
+        // 클라이언트에게 돌려줄 업로드 간격 힌트
+        private Duration uploadInterval;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.mindtrack.Config;
+
+import com.example.mindtrack.Enum.QueueBackend;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 분석 대기열 설정 (sampling.queue.*)
+ * backend=stream 이면 사용자별 리스트 대신 전역 Redis Stream + 컨슈머 그룹 사용
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "sampling.queue")
+public class ScreenshotQueueProperties {
+
+    private QueueBackend backend = QueueBackend.LIST;
+
+    // 전역 스트림 키 / 컨슈머 그룹
+    private String stream = "screenshot:stream";
+    private String group = "analysis";
+
+    // 사용자별로 스트림에 동시에 올라가 있을 수 있는 항목 수 (나머지는 사용자별 overflow 에서 대기)
+    // → 한 사용자가 몰아서 올려도 다른 사용자 항목이 뒤로 밀리지 않음
+    private int inFlightPerUser = 4;
+
+    // 워커가 가져간 뒤 이 시간 안에 완료(ACK)하지 않으면 멈춘 것으로 보고 다시 대기열로 돌림
+    // (list: reaper 가 pending 으로 되돌림, stream: 다음 claim 때 XAUTOCLAIM 으로 재배달)
+    private Duration visibilityTimeout = Duration.ofMinutes(5);
+
+    // 이 횟수만큼 시간 초과되면 더 재시도하지 않고 dead-letter 목록(screenshot:dead)으로 보냄
+    private int maxAttempts = 3;
+
+    // dead-letter 목록 최대 보관 개수
+    private int deadLetterMaxSize = 1000;
+
+    // POST /analysis/claim 한 번에 가져갈 수 있는 최대 개수
+    private int maxClaimBatch = 64;
+}
@@ -19,6 +19,7 @@ import com.example.mindtrack.Service.CustomUserDetailsService;
 public class SecurityConfig {
 
         private final JwtAuthFilter jwtAuthFilter;
+        private final WorkerAuthFilter workerAuthFilter;
         private final CustomUserDetailsService customUserDetailsService; // DB 기반 인증 추가
 
         @Bean
@@ -31,10 +32,14 @@ public class SecurityConfig {
                                                 // "/analysis/result" 은 FastAPI가 Spring으로 보내는 콜백 엔드포인트이기 때문에 JWT 인증 없이
                                                 // 접근해야 하는 “외부 시스템 전용” 엔드포인트
                                                 .requestMatchers("/analysis/result").permitAll()
+                                                // AI 워커 배치 claim/ack: 원본 바이트를 내주므로 공유 비밀 헤더(X-Worker-Token)로만 허용
+                                                // "/analysis/**" permitAll 보다 먼저 둬야 함
+                                                .requestMatchers(WorkerAuthFilter.WORKER_PATHS).hasRole("WORKER")
                                                 .requestMatchers(
                                                                 "/swagger-ui/**",
                                                                 "/swagger-ui.html",
                                                                 "/v3/api-docs/**",
+                                                                // 업로드 티켓 조회(/upload-screenshot/{ticketId})는 결과를 담고 있으므로 JWT 필요
                                                                 "/upload-screenshot",
                                                                 "/api/suggestions/stream",
                                                                 "/analysis/**",
@@ -44,6 +49,7 @@ public class SecurityConfig {
                 http.csrf(csrf -> csrf.disable());
                 http.sessionManagement((session) -> session.sessionCreationPolicy(SessionCreationPolicy.IF_REQUIRED));
                 http.addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
+                http.addFilterBefore(workerAuthFilter, UsernamePasswordAuthenticationFilter.class);
                 return http.build();
         }
 }
@@ -0,0 +1,35 @@
+package com.example.mindtrack.Config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * SSE 클러스터 fan-out 설정 (sse.fanout.*)
+ * 리더 인스턴스 하나만 LISTEN + suggestion 조회를 하고, 직렬화한 이벤트를 Redis pub/sub 채널에 발행한다
+ * 각 인스턴스는 자기에게 붙은 SSE 연결에만 전달
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "sse.fanout")
+public class SseFanoutProperties {
+
+    // false 면 기존처럼 모든 인스턴스가 LISTEN 하고 각자 조회해서 로컬 연결에 전달
+    private boolean enabled = false;
+
+    // 이벤트 채널 (재연결 복구 링 버퍼를 모든 인스턴스가 채워야 하므로 모든 인스턴스가 전부 받음 → 사용자별로 나누지 않음)
+    private String channel = "sse:fanout";
+
+    // 받은 이벤트를 전달하는 단일 스레드 lane 수, 같은 사용자는 항상 같은 lane → 받은 순서대로 전달
+    private int deliveryLanes = 4;
+
+    // 리더 lease 키 (값 = 인스턴스 ID), lease-ttl 안에 갱신하지 못하면 다른 인스턴스가 리더가 됨
+    private String leaderKey = "sse:fanout:leader";
+    private Duration leaseTtl = Duration.ofSeconds(15);
+    // lease 갱신/획득 시도 간격 (lease-ttl 보다 충분히 짧게)
+    private Duration leaseRenewInterval = Duration.ofSeconds(5);
+}
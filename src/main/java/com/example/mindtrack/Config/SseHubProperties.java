@@ -0,0 +1,47 @@
+package com.example.mindtrack.Config;
+
+import com.example.mindtrack.Enum.SlowConsumerPolicy;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * SSE 허브 설정 (sse.hub.*)
+ * 사용자를 writer 샤드로 나누고, 연결마다 크기 제한이 있는 전송 대기열을 둔다
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "sse.hub")
+public class SseHubProperties {
+
+    // writer 샤드 수 (0 이하면 CPU 코어 수), 같은 사용자의 연결은 항상 같은 샤드에서 순서대로 전송
+    private int writerShards = 0;
+
+    // 연결별 전송 대기열 크기
+    private int connectionQueueCapacity = 64;
+
+    // 대기열이 가득 찼을 때 (느린 클라이언트)
+    private SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.DROP_OLDEST;
+
+    // 재연결(Last-Event-ID) 복구용 사용자별 최근 suggestions 이벤트 수 / 보관 시간 / 최대 사용자 수
+    private int replayCapacity = 50;
+    private Duration replayTtl = Duration.ofMinutes(10);
+    private long replayMaxUsers = 100_000;
+
+    // heartbeat: 연결이 이 시간 이상 조용하지 않도록 보냄 (타이머 휠 한 바퀴 = interval / 2)
+    private Duration heartbeatInterval = Duration.ofSeconds(25);
+    // 타이머 휠 tick (슬롯 수 = interval / 2 / tick), 작을수록 heartbeat 가 고르게 퍼짐
+    private Duration heartbeatTick = Duration.ofMillis(250);
+    // 전송을 시작한 뒤(대기열 대기 시간 제외) 이 시간 동안 끝나지 않으면 상대가 죽은 것으로 보고 끊음
+    private Duration stallTimeout = Duration.ofSeconds(60);
+    // 멈춘 서블릿 연결 종료 스레드 최대 수 (종료가 막힌 쓰기를 기다릴 수 있음, 가상 스레드 모드면 사용 안 함)
+    private int stallCloserThreads = 4;
+
+    public int resolvedWriterShards() {
+        return writerShards > 0 ? writerShards : Runtime.getRuntime().availableProcessors();
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.mindtrack.Config;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * /upload-screenshot 비동기 파이프라인 설정 (sampling.pipeline.*)
+ * 단계별(hash → dedup → encode → enqueue)로 스레드 수와 대기열 크기를 따로 잡는다
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "sampling.pipeline")
+public class UploadPipelineProperties {
+
+    // false 면 기존처럼 요청 스레드에서 동기 처리 후 200 응답
+    // true 면 202 + 티켓으로 응답 계약이 바뀌므로 클라이언트(Electron)가 티켓 조회/SSE upload 이벤트를 처리할 때까지 기본값 false
+    private boolean enabled = false;
+
+    // 업로드 티켓 상태 보관 시간
+    private Duration ticketTtl = Duration.ofMinutes(30);
+
+    private Stage hash = new Stage(2, 64);
+    private Stage dedup = new Stage(4, 256);
+    private Stage encode = new Stage(2, 64);
+    private Stage enqueue = new Stage(4, 256);
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Stage {
+        private int threads;
+        private int queueCapacity;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.mindtrack.Config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+/*
+ * AI 워커 전용 엔드포인트(/analysis/claim, /analysis/ack) 인증
+ * - 모든 사용자의 원본 스크린샷을 가져가고 대기열 항목을 지울 수 있으므로 공유 비밀 헤더(X-Worker-Token)로 워커만 허용
+ * - 헤더가 analysis.worker.token 과 같으면 ROLE_WORKER 로 인증 (SecurityConfig 에서 hasRole("WORKER"))
+ * - analysis.worker.token 이 비어 있으면 아무도 통과하지 못함 (설정 누락 시 열리지 않도록)
+ */
+@Component
+@Slf4j
+public class WorkerAuthFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-Worker-Token";
+    public static final String[] WORKER_PATHS = { "/analysis/claim", "/analysis/ack" };
+
+    private final byte[] token;
+
+    public WorkerAuthFilter(@Value("${analysis.worker.token:}") String token) {
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+        if (token.isBlank()) {
+            log.warn("[Worker] analysis.worker.token 이 비어 있어 /analysis/claim, /analysis/ack 요청은 모두 거절됨");
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest req) {
+        String uri = req.getRequestURI();
+        for (String path : WORKER_PATHS) {
+            if (uri.equals(path))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest req, HttpServletResponse res, FilterChain chain)
+            throws ServletException, IOException {
+        String header = req.getHeader(HEADER);
+        // 길이가 달라도 시간 차이로 비밀 값을 알 수 없도록 MessageDigest.isEqual 로 비교
+        if (token.length > 0 && header != null
+                && MessageDigest.isEqual(token, header.getBytes(StandardCharsets.UTF_8))) {
+            var authentication = new UsernamePasswordAuthenticationToken(
+                    "analysis-worker", null, List.of(new SimpleGrantedAuthority("ROLE_WORKER")));
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+        }
+        chain.doFilter(req, res);
+    }
+}
@@ -1,6 +1,10 @@
 package com.example.mindtrack.Controller;
 
+import com.example.mindtrack.DTO.AckRequest;
 import com.example.mindtrack.DTO.AnalysisResultDto;
+import com.example.mindtrack.DTO.ClaimRequest;
+import com.example.mindtrack.DTO.ClaimedImage;
+import com.example.mindtrack.Service.ScreenshotImageCacheService;
 import com.example.mindtrack.Service.SuggestionService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -15,6 +19,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
 
 import java.util.Map;
@@ -29,11 +34,42 @@ public class AnalysisController {
 
     private final SuggestionService suggestionService;
 
+    private final ScreenshotImageCacheService screenshotImageCacheService;
+
     @PostMapping("/result")
     public ResponseEntity<String> receiveResult(@RequestBody AnalysisResultDto dto) {
         suggestionService.saveFromAnalysisResult(dto);
         return ResponseEntity.ok("결과 수신 완료");
     }
+
+    /**
+     * AI 워커 배치 가져오기: 여러 사용자에 걸쳐 최대 max 개를 한 번에 가져감 (원본 바이트 포함)
+     * 가져간 항목은 분석 후 /analysis/ack 로 완료 처리 (안 하면 visibility timeout 뒤 다시 대기열로)
+     */
+    @PostMapping("/claim")
+    public ResponseEntity<Map<String, Object>> claim(@RequestBody ClaimRequest req) {
+        String consumer = (req.consumer() == null || req.consumer().isBlank()) ? "default" : req.consumer();
+        int max = req.max() == null ? 1 : req.max();
+        boolean includeBytes = req.includeBytes() == null || req.includeBytes();
+
+        List<ClaimedImage> items = screenshotImageCacheService.claimBatch(consumer, max, includeBytes);
+        return ResponseEntity.ok(Map.of("items", items, "count", items.size()));
+    }
+
+    // 분석이 끝난 항목들 대기열에서 제거 + Redis 원본 정리
+    @PostMapping("/ack")
+    public ResponseEntity<Map<String, Object>> ack(@RequestBody AckRequest req) {
+        int acked = 0;
+        if (req.items() != null) {
+            for (AckRequest.Item item : req.items()) {
+                if (item.userId() == null || item.imageId() == null)
+                    continue;
+                screenshotImageCacheService.removeProcessingImage(item.userId(), item.imageId());
+                acked++;
+            }
+        }
+        return ResponseEntity.ok(Map.of("acked", acked));
+    }
 /*    public ResponseEntity<String> receiveResult(@RequestBody Map<String, Object> payload) {
         log.info("📦 받은 분석 결과 전체: {}", payload);
 
@@ -1,28 +1,44 @@
 package com.example.mindtrack.Controller;
 
+import com.example.mindtrack.DTO.UploadTicket;
 import com.example.mindtrack.Service.AdaptiveSamplingService;
+import com.example.mindtrack.Service.SamplingRateController;
+import com.example.mindtrack.Service.UploadPipelineService;
+import com.example.mindtrack.Util.CustomException;
+import com.example.mindtrack.Util.ScreenshotFrame;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.util.Map;
+import java.util.OptionalLong;
 
 @RestController
 @RequiredArgsConstructor
 public class ScreenshotController {
 
     private final AdaptiveSamplingService samplingService;
+    private final UploadPipelineService uploadPipelineService;
+    private final SamplingRateController samplingRateController;
 
     /**
      * 프론트로부터 받은 사진들을 받아 샘플링을 처리하는 컨트롤러
+     * - 파이프라인 사용 시(sampling.pipeline.enabled=true): 바로 202 + ticketId 응답, 처리 결과는
+     *   GET /upload-screenshot/{ticketId} 또는 SSE "upload" 이벤트로 확인
+     * - 파이프라인 미사용 시: 요청 스레드에서 샘플링 후 200 응답
+     * - 응답의 uploadIntervalMs 는 다음 업로드까지 기다릴 간격 힌트 (분석 대기열이 밀리면 늘어남)
+     * - 대기열이 밀린 상태에서 힌트보다 너무 빨리 올린 요청은 429 + Retry-After
      * @param image 들어오는 이미지
      * @param userId 사용자 아이디
      * @return ResponseEntity
@@ -34,7 +50,50 @@ public class ScreenshotController {
             @Parameter(description = "업로드할 스크린샷 이미지", required = true) @RequestParam("image") MultipartFile image,
             @Parameter(description = "사용자 ID", required = true) @RequestParam("userId") String userId
     ) throws IOException {
-        BufferedImage bufferedImage = ImageIO.read(image.getInputStream());
-        return samplingService.processImageSampling(userId, bufferedImage);
+        OptionalLong retryAfterMs = samplingRateController.admit(userId);
+        if (retryAfterMs.isPresent()) {
+            long retryAfterSeconds = Math.max(1, (retryAfterMs.getAsLong() + 999) / 1000);
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                    .body(Map.of(
+                            "success", false,
+                            "message", "분석 대기열이 밀려 있습니다. 업로드 간격을 늘려주세요.",
+                            "uploadIntervalMs", samplingRateController.paramsFor(userId).uploadIntervalMs()));
+        }
+
+        if (uploadPipelineService.isEnabled()) {
+            UploadTicket ticket = uploadPipelineService.accept(userId, image.getBytes(), image.getContentType());
+            return ResponseEntity.accepted().body(Map.of(
+                    "success", true,
+                    "ticketId", ticket.ticketId(),
+                    "status", ticket.status(),
+                    "statusUrl", "/upload-screenshot/" + ticket.ticketId(),
+                    "uploadIntervalMs", samplingRateController.paramsFor(userId).uploadIntervalMs()));
+        }
+
+        // 원본 해상도로 펼치지 않고, 해시/SSIM 용 서브샘플링 미리보기만 먼저 디코딩
+        ScreenshotFrame frame;
+        try {
+            frame = ScreenshotFrame.decode(image.getBytes(), image.getContentType());
+        } catch (IOException e) {
+            throw new CustomException("이미지를 읽을 수 없습니다: " + e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+        return samplingService.processImageSampling(userId, frame);
+    }
+
+    /**
+     * 비동기 업로드 처리 상태 조회 (JWT 필요, 본인 티켓만)
+     * @param ticketId 업로드 시 받은 티켓 ID
+     * @return 티켓 (ACCEPTED / DONE / FAILED), 만료됐거나 없거나 다른 사용자의 티켓이면 404
+     */
+    @GetMapping("/upload-screenshot/{ticketId}")
+    @Operation(summary = "스크린샷 업로드 처리 상태 조회")
+    public ResponseEntity<UploadTicket> uploadStatus(
+            @Parameter(description = "업로드 티켓 ID", required = true) @PathVariable("ticketId") String ticketId,
+            Authentication authentication) {
+        String userId = (String) authentication.getPrincipal(); // principal은 userId 문자열
+        // 다른 사용자의 티켓은 있는지도 알려주지 않음
+        return ResponseEntity.of(uploadPipelineService.getTicket(ticketId)
+                .filter(ticket -> ticket.userId().equals(userId)));
     }
 }
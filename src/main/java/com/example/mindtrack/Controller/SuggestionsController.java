@@ -4,8 +4,8 @@ import com.example.mindtrack.Config.JWT.JwtUtil;
 import com.example.mindtrack.DTO.SuggestionPayload;
 import com.example.mindtrack.Domain.Users;
 import com.example.mindtrack.Repository.SuggestionRepository;
-import com.example.mindtrack.Repository.UserRepository;
 import com.example.mindtrack.SSE.SuggestionSseHub;
+import com.example.mindtrack.Service.UserLookupService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -26,7 +26,7 @@ import java.io.IOException;
 public class SuggestionsController {
     private final SuggestionSseHub hub;
     private final SuggestionRepository suggestionRepository;
-    private final UserRepository userRepository;
+    private final UserLookupService userLookupService;
     private final JwtUtil jwtUtil;
 
     /*
@@ -84,18 +84,22 @@ public class SuggestionsController {
         log.info("[SSE] 클라이언트 연결 시도 token={}", token);
 
         try {
-            // 1️⃣ JWT에서 userId 추출
-            String userId = jwtUtil.extractUserId(token);
+            // 1️⃣ JWT에서 userId + uid(Users.id) 추출
+            JwtUtil.JwtIdentity identity = jwtUtil.extractIdentity(token);
 
-            // 2️⃣ 실제 DB 상 user 존재 여부 검증
-            Users user = userRepository.findByUserId(userId)
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not found"));
+            // 2️⃣ uid claim 이 있으면 서명 검증만으로 충분, 예전 토큰이면 user 존재 여부 검증 (near-cache → DB)
+            Long uid = identity.uid();
+            if (uid == null) {
+                Users user = userLookupService.findByUserId(identity.userId())
+                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not found"));
+                uid = user.getId();
+            }
 
-            String userIdStr = String.valueOf(user.getId());
+            String userIdStr = String.valueOf(uid);
             log.info("[SSE] 구독 성공 userId={}", userIdStr);
 
-            // 3️⃣ 기존 허브 로직 사용
-            SseEmitter emitter = hub.subscribe(user.getId());
+            // 3️⃣ 기존 허브 로직 사용 (재연결이면 Last-Event-ID 이후 이벤트 복구)
+            SseEmitter emitter = hub.subscribe(uid, lastEventId);
 
             log.info("[SSE] emitter created for user {}", userIdStr);
             return emitter;
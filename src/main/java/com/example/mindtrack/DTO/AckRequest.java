@@ -0,0 +1,10 @@
+package com.example.mindtrack.DTO;
+
+import java.util.List;
+
+// POST /analysis/ack 요청 - 분석이 끝난 항목들을 대기열에서 제거
+public record AckRequest(List<Item> items) {
+
+    public record Item(Long userId, Long imageId) {
+    }
+}
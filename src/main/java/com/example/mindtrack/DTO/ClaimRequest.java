@@ -0,0 +1,9 @@
+package com.example.mindtrack.DTO;
+
+// POST /analysis/claim 요청 (FastAPI 워커)
+// consumer: 워커 이름, max: 최대 개수, include_bytes: false 면 원본 바이트 대신 Redis 키만 전달
+public record ClaimRequest(
+        String consumer,
+        Integer max,
+        Boolean includeBytes) {
+}
@@ -0,0 +1,14 @@
+package com.example.mindtrack.DTO;
+
+// POST /analysis/claim 응답 항목
+// original 은 JSON 에서 base64 문자열, include_bytes=false 면 null 이고 original_key 로 Redis 에서 직접 읽음
+// merged_frames: 분석 전에 이 이미지에 덮어써진(묶인) 비슷한 프레임 수
+public record ClaimedImage(
+        Long userId,
+        Long imageId,
+        String entryId,
+        String originalKey,
+        String contentType,
+        byte[] original,
+        long mergedFrames) {
+}
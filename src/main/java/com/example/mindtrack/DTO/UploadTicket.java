@@ -0,0 +1,27 @@
+package com.example.mindtrack.DTO;
+
+import com.example.mindtrack.Enum.UploadStatus;
+
+import java.util.Map;
+
+// 비동기 업로드 처리 상태 (GET /upload-screenshot/{ticketId} 응답 및 SSE "upload" 이벤트)
+public record UploadTicket(
+        String ticketId,
+        String userId,
+        UploadStatus status,
+        Map<String, Object> result,
+        String error,
+        long acceptedAt) {
+
+        public static UploadTicket accepted(String ticketId, String userId) {
+                return new UploadTicket(ticketId, userId, UploadStatus.ACCEPTED, null, null, System.currentTimeMillis());
+        }
+
+        public UploadTicket done(Map<String, Object> result) {
+                return new UploadTicket(ticketId, userId, UploadStatus.DONE, result, null, acceptedAt);
+        }
+
+        public UploadTicket failed(String error) {
+                return new UploadTicket(ticketId, userId, UploadStatus.FAILED, null, error, acceptedAt);
+        }
+}
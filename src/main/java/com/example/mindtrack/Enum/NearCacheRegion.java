@@ -0,0 +1,7 @@
+package com.example.mindtrack.Enum;
+
+public enum NearCacheRegion {
+    RECENT, // 사용자별 최근 해시 인덱스 (key = "userId|version")
+    PLANE,  // SSIM 밝기 평면 (key = Redis 평면 키)
+    STATUS  // 분석 상태 (key = Redis 상태 키, keyspace notification 으로 받음)
+}
@@ -0,0 +1,6 @@
+package com.example.mindtrack.Enum;
+
+public enum QueueBackend {
+    LIST,   // 사용자별 pending:{userId} / processing:{userId} 리스트 (기존 방식)
+    STREAM  // 전역 Redis Stream + 컨슈머 그룹
+}
@@ -0,0 +1,6 @@
+package com.example.mindtrack.Enum;
+
+public enum SlowConsumerPolicy {
+    DROP_OLDEST, // 연결별 대기열이 가득 차면 가장 오래된 이벤트를 버리고 새 이벤트를 넣음
+    DISCONNECT   // 연결별 대기열이 가득 차면 연결을 끊음 (클라이언트가 재연결)
+}
@@ -0,0 +1,7 @@
+package com.example.mindtrack.Enum;
+
+public enum UploadStatus {
+    ACCEPTED, // 202 응답 후 파이프라인 처리 중
+    DONE,     // 샘플링 + Redis 저장 완료
+    FAILED    // 처리 중 오류
+}
@@ -0,0 +1,70 @@
+package com.example.mindtrack.SSE;
+
+import com.example.mindtrack.Enum.SlowConsumerPolicy;
+import io.micrometer.core.instrument.Counter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/*
+ * 서블릿 SseEmitter 연결 (/api/suggestions/stream)
+ * 실제 전송(emitter.send)은 사용자 샤드의 writer 스레드에서 drain 이 순서대로 처리 (send 는 소켓 쓰기가 끝날 때까지 막힘)
+ * 멈춘 것으로 판정되면 샤드 스레드가 이 연결의 send 에 막혀 있는 것 → 샤드를 떼어 내서 같은 샤드의 다른 연결은 계속 전송
+ */
+@Slf4j
+final class EmitterSseConnection extends SseConnection {
+
+    final SseEmitter emitter;
+    private final WriterShard writer;
+
+    EmitterSseConnection(Long userId, SseEmitter emitter, WriterShard writer, int capacity, SlowConsumerPolicy policy,
+            Counter droppedCounter, Counter slowDisconnectedCounter, Consumer<SseConnection> onClose) {
+        super(userId, capacity, policy, droppedCounter, slowDisconnectedCounter, onClose);
+        this.emitter = emitter;
+        this.writer = writer;
+    }
+
+    @Override
+    protected void startDrain() {
+        writer.execute(this::drain);
+    }
+
+    private void drain() {
+        while (true) {
+            SseFrame event = poll();
+            if (event == null)
+                return;
+            blocked();
+            try {
+                emitter.send(event.items());
+            } catch (IOException | IllegalStateException e) {
+                log.debug("[SSE] 전송 실패 userId={} : {}", userId, e.getMessage());
+                close(e);
+                return;
+            }
+            written();
+        }
+    }
+
+    @Override
+    protected void stalled() {
+        writer.detach();
+    }
+
+    // completeWithError 가 막힌 send 가 끝날 때까지 기다릴 수 있음
+    @Override
+    protected boolean closeMayBlock() {
+        return true;
+    }
+
+    @Override
+    protected void terminate(Throwable error) {
+        if (error != null) {
+            emitter.completeWithError(error);
+        } else {
+            emitter.complete();
+        }
+    }
+}
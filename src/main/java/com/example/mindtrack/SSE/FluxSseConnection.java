@@ -0,0 +1,64 @@
+package com.example.mindtrack.SSE;
+
+import com.example.mindtrack.Enum.SlowConsumerPolicy;
+import io.micrometer.core.instrument.Counter;
+import reactor.core.publisher.FluxSink;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/*
+ * Reactor Netty SSE 연결 (ReactiveSseServer)
+ * - 클라이언트 demand(requestedFromDownstream) 만큼만 sink 로 내보냄 → Netty 는 소켓이 쓰기 가능할 때만 더 요청하므로
+ *   읽지 않는 클라이언트의 이벤트는 이 연결의 대기열에 쌓이고 slow-consumer-policy / heartbeat 휠의 stall 판정을 그대로 받음
+ * - 전송 스레드가 따로 없음: offer 한 스레드나 Netty 이벤트 루프(onRequest)가 바로 내보내고, 쉬는 연결은 대기열 + sink 객체만 남음
+ * - drain 은 wip 카운터로 한 번에 하나만 (offer 와 onRequest 가 겹쳐도 순서 유지)
+ */
+final class FluxSseConnection extends SseConnection {
+
+    private final FluxSink<SseFrame> sink;
+    private final AtomicInteger wip = new AtomicInteger();
+
+    FluxSseConnection(Long userId, FluxSink<SseFrame> sink, int capacity, SlowConsumerPolicy policy,
+            Counter droppedCounter, Counter slowDisconnectedCounter, Consumer<SseConnection> onClose) {
+        super(userId, capacity, policy, droppedCounter, slowDisconnectedCounter, onClose);
+        this.sink = sink;
+        sink.onRequest(n -> drain());
+        // 클라이언트가 끊으면(cancel) 허브에서 제거
+        sink.onDispose(() -> close(null));
+    }
+
+    @Override
+    protected void startDrain() {
+        drain();
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0)
+            return;
+        int missed = 1;
+        do {
+            while (sink.requestedFromDownstream() > 0) {
+                SseFrame event = poll();
+                if (event == null)
+                    break;
+                sink.next(event);
+                written();
+            }
+            // 보낼 게 남았는데 demand 가 없음 → 상대가 읽지 않는 동안의 시작 (다음 onRequest 의 전송에서 풀림)
+            if (sink.requestedFromDownstream() == 0 && hasPending())
+                blocked();
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    // 오류 종료면 Reactor Netty 가 연결을 바로 닫음 (멈춘 상대에게 남은 응답을 flush 하려고 기다리지 않음)
+    @Override
+    protected void terminate(Throwable error) {
+        if (error != null) {
+            sink.error(error);
+        } else {
+            sink.complete();
+        }
+    }
+}
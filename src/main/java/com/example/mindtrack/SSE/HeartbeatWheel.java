@@ -0,0 +1,147 @@
+package com.example.mindtrack.SSE;
+
+import com.example.mindtrack.Util.ThreadFactories;
+import io.micrometer.core.instrument.Counter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+
+/*
+ * SSE heartbeat 용 해시 타이머 휠
+ * - 연결을 슬롯 N 개에 고르게 나눠 두고(round-robin), tick 마다 슬롯 하나만 확인 → 한 바퀴 = interval / 2
+ *   25초마다 전체 연결을 한꺼번에 도는 대신 부하가 interval 전체에 고르게 퍼짐
+ * - 슬롯을 지날 때 연결 상태(SseConnection.check)를 보고
+ *   · 마지막 전송 후 interval / 2 이상 조용했던 연결에만 heartbeat (이벤트가 자주 가는 연결은 건너뜀)
+ *     한 바퀴에 두 번 확인하므로 어떤 연결도 interval 이상 조용하지 않음
+ *   · 전송을 시작한 뒤 stall-timeout 동안 끝나지 않으면 상대가 죽은 것(dead peer)으로 보고 끊음
+ *     → 쓰기 실패(IOException)가 날 때까지 기다리지 않음
+ *     끊기 전에 SseConnection.stalled → emitter 연결은 막힌 writer 샤드를 새 스레드로 교체 (WriterShard.detach, 막히지 않음)
+ *     emitter 종료는 막힌 쓰기가 실패할 때까지(TCP 수준에서 몇 분) 기다릴 수 있으므로 종료 전용 풀에서
+ *     (플랫폼 스레드면 stall-closer-threads 개까지, 가상 스레드 모드면 종료마다 가상 스레드) → 연결이 한꺼번에 끊겨도 OS 스레드가 늘지 않음
+ *     Flux 연결은 종료가 막히지 않으므로 ticker 에서 바로 끊음
+ * - 전용 스레드 하나에서 돌아감 → 공용 @Scheduled 스레드를 붙잡지 않음
+ * - 슬롯의 프레임은 tick 마다 하나만 만들어 그 슬롯의 연결에 공유
+ */
+@Slf4j
+final class HeartbeatWheel {
+
+    private final Set<SseConnection>[] slots;
+    private final long tickMs;
+    private final long idleMs;
+    private final long stallMs;
+    private final LongFunction<SseFrame> heartbeatFrame;
+    private final Counter deadPeerCounter;
+    private final AtomicInteger nextSlot = new AtomicInteger();
+
+    private final ScheduledExecutorService ticker;
+    // 멈춘 연결 종료용 (emitter 종료가 진행 중인 쓰기를 기다릴 수 있으므로 ticker 밖에서)
+    private final ThreadPoolExecutor closer;
+    // ticker 스레드에서만 사용
+    private int cursor;
+
+    @SuppressWarnings("unchecked")
+    HeartbeatWheel(long intervalMs, long tickMs, long stallMs,
+            LongFunction<SseFrame> heartbeatFrame, Counter deadPeerCounter, int closerThreads, boolean virtualThreads) {
+        this.tickMs = Math.max(1, tickMs);
+        this.idleMs = Math.max(1, intervalMs / 2);
+        this.stallMs = stallMs;
+        this.heartbeatFrame = heartbeatFrame;
+        this.deadPeerCounter = deadPeerCounter;
+
+        int n = (int) Math.max(1, idleMs / this.tickMs);
+        this.slots = new Set[n];
+        for (int i = 0; i < n; i++) {
+            slots[i] = ConcurrentHashMap.newKeySet();
+        }
+        this.ticker = Executors.newSingleThreadScheduledExecutor(ThreadFactories.named("sse-heartbeat", false));
+        this.closer = newCloser(closerThreads, ThreadFactories.named("sse-dead-peer", virtualThreads), virtualThreads);
+    }
+
+    // 가상 스레드: 종료마다 스레드 (막혀도 OS 스레드를 잡지 않음)
+    // 플랫폼 스레드: 최대 closerThreads 개, 나머지는 대기열에서 순서대로 (쉬면 스레드 반납)
+    private static ThreadPoolExecutor newCloser(int closerThreads, ThreadFactory threads, boolean virtualThreads) {
+        if (virtualThreads) {
+            return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 0L, TimeUnit.MILLISECONDS,
+                    new SynchronousQueue<>(), threads);
+        }
+        int n = Math.max(1, closerThreads);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(n, n, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), threads);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    void start() {
+        ticker.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        log.info("[SSE] heartbeat 휠 시작 slots={}, tick={}ms, idle={}ms, stall={}ms",
+                slots.length, tickMs, idleMs, stallMs);
+    }
+
+    void add(SseConnection conn) {
+        int slot = Math.floorMod(nextSlot.getAndIncrement(), slots.length);
+        conn.wheelSlot = slot;
+        slots[slot].add(conn);
+    }
+
+    void remove(SseConnection conn) {
+        int slot = conn.wheelSlot;
+        if (slot >= 0) {
+            slots[slot].remove(conn);
+        }
+    }
+
+    private void tick() {
+        try {
+            Set<SseConnection> slot = slots[cursor];
+            cursor = (cursor + 1) % slots.length;
+            if (slot.isEmpty())
+                return;
+
+            long now = System.currentTimeMillis();
+            SseFrame heartbeat = null;
+            for (SseConnection conn : slot) {
+                switch (conn.check(now, idleMs, stallMs)) {
+                    case IDLE -> {
+                        if (heartbeat == null)
+                            heartbeat = heartbeatFrame.apply(now);
+                        conn.offer(heartbeat);
+                    }
+                    case STALLED -> {
+                        slot.remove(conn);
+                        deadPeerCounter.increment();
+                        log.info("[SSE] 응답 없는 연결 종료 userId={}, {}ms 동안 전송 진행 없음", conn.userId, stallMs);
+                        conn.stalled();
+                        IOException stalled = new IOException("SSE peer stalled");
+                        if (conn.closeMayBlock()) {
+                            closer.execute(() -> conn.close(stalled));
+                        } else {
+                            conn.close(stalled);
+                        }
+                    }
+                    case CLOSED -> slot.remove(conn);
+                    case OK -> {
+                    }
+                }
+            }
+        } catch (Exception e) {
+            // 예외가 나가면 scheduleAtFixedRate 가 멈추므로 여기서 삼킴
+            log.warn("[SSE] heartbeat tick 실패 : {}", e.getMessage());
+        }
+    }
+
+    void stop() {
+        ticker.shutdownNow();
+        closer.shutdown();
+    }
+}
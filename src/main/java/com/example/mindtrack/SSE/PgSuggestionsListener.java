@@ -3,6 +3,7 @@ package com.example.mindtrack.SSE;
 import com.example.mindtrack.DTO.SuggestionPayload;
 import com.example.mindtrack.Repository.SuggestionRepository;
 import com.example.mindtrack.Service.SuggestionService;
+import com.example.mindtrack.Util.ThreadFactories;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
@@ -12,6 +13,7 @@ import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.sql.DataSource;
@@ -21,6 +23,15 @@ import java.sql.Statement;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+/*
+ * LISTEN suggestions_channel 전용 연결 하나를 붙잡고 알림을 받아 SSE 허브로 전달
+ * - spring.threads.virtual.enabled=true 이면 listen 루프를 가상 스레드로 실행
+ *   getNotifications() 대기는 소켓 읽기라 캐리어 스레드를 붙잡지 않음
+ *   (pgjdbc 42.6+ 는 내부 synchronized 를 ReentrantLock 으로 바꿔서 pinning 없음, 이 클래스에도 synchronized 없음)
+ * - networkTimeout 용 executor 는 드라이버가 abort 용으로 쓰는 스레드라 플랫폼 스레드 유지
+ * - sse.fanout.enabled=true 면 fan-out 리더 인스턴스만 LISTEN (리더가 아니면 연결 없이 대기, 리더를 잃으면 UNLISTEN)
+ *   → suggestion 조회는 클러스터 전체에서 한 번, 전달은 SuggestionSseHub 가 Redis 를 거쳐 모든 인스턴스로
+ */
 @Component
 @Slf4j
 public class PgSuggestionsListener implements InitializingBean, DisposableBean {
@@ -30,6 +41,8 @@ public class PgSuggestionsListener implements InitializingBean, DisposableBean {
     private final SuggestionService suggestionService;
     private final SuggestionRepository suggestionRepository;
     private final SuggestionSseHub hub;
+    private final SseFanout fanout;
+    private final boolean virtualThreads;
 
     private volatile boolean running = true;
     private Connection conn;
@@ -41,12 +54,16 @@ public class PgSuggestionsListener implements InitializingBean, DisposableBean {
             @Qualifier("listenerDataSource") DataSource listenerDs,
             SuggestionService suggestionService,
             SuggestionRepository suggestionRepository,
-            SuggestionSseHub hub
+            SuggestionSseHub hub,
+            SseFanout fanout,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
     ) {
         this.listenerDs = listenerDs;
         this.suggestionService = suggestionService;
         this.suggestionRepository = suggestionRepository;
         this.hub = hub;
+        this.fanout = fanout;
+        this.virtualThreads = virtualThreads;
     }
 
     // networkTimeout용 단일 스레드
@@ -58,14 +75,18 @@ public class PgSuggestionsListener implements InitializingBean, DisposableBean {
 
     @Override
     public void afterPropertiesSet() {
-        Thread t = new Thread(this::runLoop, "pg-listen-suggestions");
-        t.setDaemon(true);
+        Thread t = ThreadFactories.named("pg-listen-suggestions", virtualThreads).newThread(this::runLoop);
         t.start();
     }
 
     private void runLoop() {
         long backoffMs = 1000;
         while (running) {
+            if (!fanout.shouldListen()) {
+                // fan-out 리더가 아님 → LISTEN 연결을 잡지 않고 리더가 될 때까지 대기
+                sleepQuiet(1000);
+                continue;
+            }
             try {
                 log.info("🔄 [Listener] Connecting and attaching to channel '{}'", CHANNEL);
                 connectAndListen();
@@ -105,7 +126,7 @@ public class PgSuggestionsListener implements InitializingBean, DisposableBean {
 
     private void pollLoop() throws Exception {
         log.info("▶️ [Listener] Starting poll loop...");
-        while (running) {
+        while (running && fanout.shouldListen()) {
             try (Statement st = conn.createStatement()) {
                 st.execute("SELECT 1");
             }
@@ -0,0 +1,142 @@
+package com.example.mindtrack.SSE;
+
+import com.example.mindtrack.Config.JWT.JwtUtil;
+import com.example.mindtrack.Config.ReactiveSseProperties;
+import com.example.mindtrack.Service.UserLookupService;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.util.List;
+
+/*
+ * Reactor Netty 로 띄우는 SSE 전용 서버 (sse.reactive.enabled=true 일 때, 기본 포트 8081)
+ * - 서블릿 SseEmitter 는 연결마다 async 요청 컨텍스트 + 블로킹 send 용 writer 스레드가 필요하지만
+ *   여기서는 연결마다 Netty 채널 + FluxSseConnection(대기열, sink)만 남음 → 쉬는 연결에 스레드를 쓰지 않음
+ * - 이벤트는 같은 SuggestionSseHub 에서 받음 (재연결 복구, heartbeat 휠, slow-consumer-policy, fan-out 모두 동일)
+ * - 프레임은 이미 직렬화된 바이트(SseFrame)를 감싸서 그대로 쓰고 프레임마다 flush
+ * - 전송은 클라이언트 demand 기준 (소켓이 쓰기 불가면 Netty 가 요청을 멈춤 → 연결 대기열에 쌓임)
+ * 앱 전체(JPA, 서블릿 Spring Security 필터)는 서블릿 스택 그대로 두고 SSE 스트림만 별도 포트로 제공
+ * → Spring Security 필터를 거치지 않으므로 토큰 검증은 /api/suggestions/stream 과 같은 방식으로 여기서 직접 함
+ */
+@Component
+@Slf4j
+public class ReactiveSseServer implements InitializingBean, DisposableBean {
+
+    private static final String LAST_EVENT_ID = "Last-Event-ID";
+
+    private final ReactiveSseProperties props;
+    private final SuggestionSseHub hub;
+    private final JwtUtil jwtUtil;
+    private final UserLookupService userLookupService;
+
+    private DisposableServer server;
+
+    public ReactiveSseServer(
+            ReactiveSseProperties props,
+            SuggestionSseHub hub,
+            JwtUtil jwtUtil,
+            UserLookupService userLookupService) {
+        this.props = props;
+        this.hub = hub;
+        this.jwtUtil = jwtUtil;
+        this.userLookupService = userLookupService;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!props.isEnabled())
+            return;
+        server = HttpServer.create()
+                .host(props.getHost())
+                .port(props.getPort())
+                .route(routes -> routes
+                        .get(props.getPath(), this::stream)
+                        .options(props.getPath(), this::preflight))
+                .bindNow();
+        log.info("[SSE] Reactor Netty SSE 서버 시작 {}:{}{}", props.getHost(), server.port(), props.getPath());
+    }
+
+    private Publisher<Void> stream(HttpServerRequest req, HttpServerResponse res) {
+        cors(req, res);
+        String token = queryParam(req, "token");
+        String lastEventId = req.requestHeaders().get(LAST_EVENT_ID);
+        if (token == null)
+            return unauthorized(res);
+
+        JwtUtil.JwtIdentity identity;
+        try {
+            identity = jwtUtil.extractIdentity(token);
+        } catch (Exception e) {
+            log.warn("[SSE] 토큰 검증 실패: {}", e.getMessage());
+            return unauthorized(res);
+        }
+
+        // uid claim 이 있으면 서명 검증만으로 충분, 예전 토큰이면 사용자 조회 (DB 일 수 있으므로 이벤트 루프 밖에서)
+        if (identity.uid() != null)
+            return send(res, identity.uid(), lastEventId);
+        return Mono.fromCallable(() -> userLookupService.findByUserId(identity.userId()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(user -> user.isPresent()
+                        ? Mono.from(send(res, user.get().getId(), lastEventId))
+                        : Mono.from(unauthorized(res)));
+    }
+
+    private Publisher<Void> send(HttpServerResponse res, Long uid, @Nullable String lastEventId) {
+        log.info("[SSE] reactive 구독 성공 userId={}", uid);
+        return res.sse()
+                .header(HttpHeaderNames.CACHE_CONTROL, "no-cache")
+                .send(hub.subscribeFlux(uid, lastEventId).map(frame -> Unpooled.wrappedBuffer(frame.bytes())),
+                        buf -> true);
+    }
+
+    private Publisher<Void> preflight(HttpServerRequest req, HttpServerResponse res) {
+        cors(req, res);
+        String requestHeaders = req.requestHeaders().get(HttpHeaderNames.ACCESS_CONTROL_REQUEST_HEADERS);
+        res.header(HttpHeaderNames.ACCESS_CONTROL_ALLOW_METHODS, "GET, OPTIONS");
+        if (requestHeaders != null) {
+            res.header(HttpHeaderNames.ACCESS_CONTROL_ALLOW_HEADERS, requestHeaders);
+        }
+        return res.status(HttpResponseStatus.NO_CONTENT).send();
+    }
+
+    // CorsConfig 와 같은 정책 (허용 Origin 만, credentials 허용)
+    private void cors(HttpServerRequest req, HttpServerResponse res) {
+        String origin = req.requestHeaders().get(HttpHeaderNames.ORIGIN);
+        if (origin != null && props.getAllowedOrigins().contains(origin)) {
+            res.header(HttpHeaderNames.ACCESS_CONTROL_ALLOW_ORIGIN, origin)
+                    .header(HttpHeaderNames.ACCESS_CONTROL_ALLOW_CREDENTIALS, "true")
+                    .header(HttpHeaderNames.VARY, HttpHeaderNames.ORIGIN);
+        }
+    }
+
+    private static Publisher<Void> unauthorized(HttpServerResponse res) {
+        return res.status(HttpResponseStatus.UNAUTHORIZED).send();
+    }
+
+    @Nullable
+    private static String queryParam(HttpServerRequest req, String name) {
+        List<String> values = new QueryStringDecoder(req.uri()).parameters().get(name);
+        return values == null || values.isEmpty() || values.get(0).isBlank() ? null : values.get(0);
+    }
+
+    @Override
+    public void destroy() {
+        if (server != null) {
+            server.disposeNow(props.getShutdownTimeout());
+        }
+    }
+}
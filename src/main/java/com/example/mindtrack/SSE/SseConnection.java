@@ -0,0 +1,186 @@
+package com.example.mindtrack.SSE;
+
+import com.example.mindtrack.Enum.SlowConsumerPolicy;
+import io.micrometer.core.instrument.Counter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.function.Consumer;
+
+/*
+ * SSE 연결 하나 + 크기 제한이 있는 전송 대기열 (전송 방식은 하위 클래스)
+ * - EmitterSseConnection : 서블릿 SseEmitter, 사용자 샤드의 writer 스레드가 emitter.send 로 전송
+ * - FluxSseConnection    : Reactor Netty Flux, 클라이언트 demand 만큼만 내보냄 (스레드 점유 없음)
+ * - offer 는 대기열에 넣기만 하고 바로 돌아감 (PG LISTEN 루프/업로드 스레드가 느린 클라이언트를 기다리지 않음)
+ * - 한 연결의 drain 은 동시에 하나만 실행 (draining 플래그 = 보낼 이벤트가 남아 있거나 전송 중)
+ * - 대기열에는 미리 직렬화된 SseFrame 을 넣음 (같은 프레임을 여러 연결이 공유)
+ * - 마지막 전송 시각 / 실제로 전송을 시작하고 끝나지 않은 시각을 기록 → heartbeat 휠이 쉬는 연결과 멈춘 연결(dead peer)을 구분
+ *   (대기열에서 차례를 기다리는 시간은 멈춤으로 보지 않음 - 같은 샤드의 다른 연결 때문에 늦는 건 이 연결 탓이 아님)
+ * synchronized 구간은 대기열 조작만 함 (전송은 락 밖) → 가상 스레드 pinning 영향 없음
+ */
+@Slf4j
+abstract class SseConnection {
+
+    final Long userId;
+
+    private final int capacity;
+    private final SlowConsumerPolicy policy;
+    private final Counter droppedCounter;
+    private final Counter slowDisconnectedCounter;
+    private final Consumer<SseConnection> onClose;
+
+    private final ArrayDeque<SseFrame> queue = new ArrayDeque<>();
+    private boolean draining;
+    private volatile boolean closed;
+    // 마지막으로 전송을 끝낸 시각 (heartbeat 판단용)
+    private long lastWriteAt;
+    // 전송을 시작했는데 아직 끝나지 않은 시각 (0 이면 전송 중 아님), 오래 그대로면 상대가 읽지 않는 것
+    private long blockedSince;
+    // heartbeat 휠에서 이 연결이 들어 있는 슬롯 (HeartbeatWheel 이 관리)
+    volatile int wheelSlot = -1;
+
+    SseConnection(Long userId, int capacity, SlowConsumerPolicy policy,
+            Counter droppedCounter, Counter slowDisconnectedCounter, Consumer<SseConnection> onClose) {
+        this.userId = userId;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.droppedCounter = droppedCounter;
+        this.slowDisconnectedCounter = slowDisconnectedCounter;
+        this.onClose = onClose;
+        this.lastWriteAt = System.currentTimeMillis();
+    }
+
+    // draining 이 false → true 로 바뀔 때 한 번 호출, 대기열을 비울 때까지(또는 더 보낼 수 없을 때까지) 전송
+    protected abstract void startDrain();
+
+    // close 에서 호출 - 실제 연결 종료 (error 가 있으면 오류 종료)
+    protected abstract void terminate(Throwable error);
+
+    // heartbeat 휠이 멈춘 연결로 판정해서 끊기 직전에 호출 - 막힌 전송이 붙잡은 자원을 풀어야 하면 하위 클래스에서
+    protected void stalled() {
+    }
+
+    // terminate 가 막힌 전송을 기다릴 수 있으면 true → heartbeat 휠이 멈춘 연결을 ticker 밖에서 끊음
+    protected boolean closeMayBlock() {
+        return false;
+    }
+
+    /**
+     * 전송 대기열에 넣음 (가득 차면 정책에 따라 가장 오래된 이벤트를 버리거나 연결을 끊음)
+     * @return 대기열에 들어갔으면 true
+     */
+    boolean offer(SseFrame event) {
+        boolean schedule = false;
+        boolean disconnect = false;
+        synchronized (this) {
+            if (closed)
+                return false;
+            if (queue.size() >= capacity) {
+                if (policy == SlowConsumerPolicy.DISCONNECT) {
+                    disconnect = true;
+                } else {
+                    queue.pollFirst();
+                    droppedCounter.increment();
+                }
+            }
+            if (!disconnect) {
+                queue.addLast(event);
+                if (!draining) {
+                    draining = true;
+                    schedule = true;
+                }
+            }
+        }
+
+        if (disconnect) {
+            log.info("[SSE] 느린 클라이언트 연결 종료 userId={}, 대기 이벤트 {}개 초과", userId, capacity);
+            slowDisconnectedCounter.increment();
+            close(null);
+            return false;
+        }
+        if (schedule) {
+            startDrain();
+        }
+        return true;
+    }
+
+    /**
+     * heartbeat 휠이 슬롯을 돌 때 호출 - 이 연결에 지금 필요한 처리
+     * @param now 현재 시각(ms)
+     * @param idleMs 마지막 전송 후 이만큼 조용했으면 heartbeat
+     * @param stallMs 전송을 시작한 뒤 이만큼 끝나지 않으면 상대가 죽은 것으로 봄
+     */
+    synchronized Health check(long now, long idleMs, long stallMs) {
+        if (closed)
+            return Health.CLOSED;
+        if (blockedSince > 0)
+            return now - blockedSince >= stallMs ? Health.STALLED : Health.OK;
+        if (draining)
+            return Health.OK;
+        return now - lastWriteAt >= idleMs ? Health.IDLE : Health.OK;
+    }
+
+    // drain 에서 다음에 보낼 이벤트, 없거나 닫혔으면 null (draining 해제)
+    protected final synchronized SseFrame poll() {
+        SseFrame event = queue.pollFirst();
+        if (event == null || closed) {
+            draining = false;
+            blockedSince = 0;
+            return null;
+        }
+        return event;
+    }
+
+    // 보낼 이벤트가 있는지 (Flux: demand 가 없어서 멈췄는지 판단용)
+    protected final synchronized boolean hasPending() {
+        return !queue.isEmpty();
+    }
+
+    /**
+     * 전송을 시작했지만 상대 때문에 끝나지 않는 상태의 시작 (이미 표시돼 있으면 그대로)
+     * emitter: send 직전, Flux: 보낼 이벤트가 있는데 demand 가 없을 때
+     */
+    protected final synchronized void blocked() {
+        if (blockedSince == 0)
+            blockedSince = System.currentTimeMillis();
+    }
+
+    // drain 에서 한 건 전송을 끝낼 때마다 호출
+    protected final void written() {
+        long sentAt = System.currentTimeMillis();
+        synchronized (this) {
+            lastWriteAt = sentAt;
+            blockedSince = 0;
+        }
+    }
+
+    /**
+     * 연결 종료 + 허브에서 제거 (여러 번 불려도 한 번만 처리)
+     * 허브에서 먼저 빼고 연결을 닫음 (멈춘 연결은 종료가 진행 중인 쓰기를 기다릴 수 있음)
+     */
+    void close(Throwable error) {
+        synchronized (this) {
+            if (closed)
+                return;
+            closed = true;
+            queue.clear();
+        }
+        onClose.accept(this);
+        try {
+            terminate(error);
+        } catch (Exception ignore) {
+            // 이미 끝난 연결
+        }
+    }
+
+    enum Health {
+        // 할 일 없음 (최근에 보냈거나 전송 중)
+        OK,
+        // 한동안 보낸 게 없음 → heartbeat 필요
+        IDLE,
+        // 전송이 진행되지 않음 → 상대가 죽었거나 읽지 않음
+        STALLED,
+        // 이미 닫힘 (등록 전에 닫힌 연결 등) → 휠에서 빼기만 함
+        CLOSED
+    }
+}
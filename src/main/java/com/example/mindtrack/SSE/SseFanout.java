@@ -0,0 +1,185 @@
+package com.example.mindtrack.SSE;
+
+import com.example.mindtrack.Config.SseFanoutProperties;
+import com.example.mindtrack.Util.RedisScripts;
+import com.example.mindtrack.Util.ThreadFactories;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/*
+ * 인스턴스 간 SSE 이벤트 fan-out (sse.fanout.enabled=true 일 때)
+ * - Redis lease(SET NX PX + 갱신 Lua)로 리더 하나를 뽑음 → 리더만 PG LISTEN + suggestion 조회 (PgSuggestionsListener)
+ *   → 인스턴스가 N 개여도 insert 한 건당 findWithItemsById 는 한 번
+ * - 이벤트는 보내는 쪽에서 한 번 직렬화해서 "userId|event|eventId|json" 으로 채널에 PUBLISH
+ *   (업로드 결과처럼 리더가 아닌 인스턴스에서 생긴 이벤트도 같은 경로 → 사용자가 어느 인스턴스에 붙어 있어도 받음)
+ * - 모든 인스턴스가 채널 하나를 구독하고 자기에게 붙은 연결에만 전달, 재연결 복구 링 버퍼도 모든 인스턴스가 기록
+ *   (어느 인스턴스로 재연결해도 복구돼야 하므로 사용자별로 나눠 구독하지 않음)
+ *   보낸 인스턴스도 구독으로 받아서 전달 → 로컬/원격 전달 순서가 같음
+ * - 받은 메시지는 사용자별 lane(단일 스레드)으로 넘겨 전달 → 같은 사용자의 이벤트는 Redis 에서 받은 순서대로
+ *   (리스너 컨테이너는 단일 스레드라 받은 순서대로 넘기고, lane 이 사용자 순서를 지킴)
+ * pub/sub 은 구독이 끊긴 동안의 메시지를 잃음 → 재연결 복구(Last-Event-ID)의 gap/resync 로 보완
+ * lease 가 넘어가는 사이(최대 lease-ttl)에 온 NOTIFY 는 처리되지 않음 (NOTIFY 자체도 LISTEN 중이 아니면 사라짐)
+ */
+@Component
+@Slf4j
+public class SseFanout implements InitializingBean, DisposableBean {
+
+    private static final DefaultRedisScript<Long> RENEW_LEASE_SCRIPT =
+            RedisScripts.load(Long.class, "redis/renew_lease.lua");
+    private static final DefaultRedisScript<Long> RELEASE_LEASE_SCRIPT =
+            RedisScripts.load(Long.class, "redis/release_lease.lua");
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final SseFanoutProperties props;
+
+    private final ExecutorService[] lanes;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private volatile boolean leader;
+    private volatile Consumer<FanoutEvent> handler;
+
+    public SseFanout(
+            RedisTemplate<String, String> redisTemplate,
+            RedisMessageListenerContainer listenerContainer,
+            SseFanoutProperties props,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.props = props;
+        int n = props.isEnabled() ? Math.max(1, props.getDeliveryLanes()) : 0;
+        this.lanes = new ExecutorService[n];
+        for (int i = 0; i < n; i++) {
+            lanes[i] = Executors.newSingleThreadExecutor(ThreadFactories.named("sse-fanout-" + i, virtualThreads));
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!props.isEnabled())
+            return;
+        listenerContainer.addMessageListener(this::onMessage, new ChannelTopic(props.getChannel()));
+        log.info("[SSE] fan-out 구독 channel={}, lanes={}, nodeId={}", props.getChannel(), lanes.length, nodeId);
+    }
+
+    public boolean isEnabled() {
+        return props.isEnabled();
+    }
+
+    // 이 인스턴스가 PG LISTEN 을 해야 하는지 (fan-out 이 꺼져 있으면 모든 인스턴스가 각자 LISTEN)
+    public boolean shouldListen() {
+        return !props.isEnabled() || leader;
+    }
+
+    // 다른 인스턴스(와 자기 자신)에서 온 이벤트 처리 - SuggestionSseHub 가 등록
+    void register(Consumer<FanoutEvent> handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * 직렬화된 이벤트를 fan-out 채널에 발행
+     * @return 발행했으면 true (실패하면 호출한 쪽이 로컬 연결에만 전달)
+     */
+    boolean publish(Long userId, String event, @Nullable String eventId, String json) {
+        String message = userId + "|" + event + "|" + (eventId == null ? "" : eventId) + "|" + json;
+        try {
+            redisTemplate.convertAndSend(props.getChannel(), message);
+            return true;
+        } catch (Exception e) {
+            log.warn("[SSE] fan-out 발행 실패 userId={}, event={} : {}", userId, event, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 리더 lease 획득/갱신 - 리더면 TTL 연장, 아니면 비어 있을 때 가져옴
+     * Redis 오류면 리더를 내려놓음 (lease 를 확인할 수 없는 상태로 LISTEN 을 계속하면 리더가 둘이 될 수 있음)
+     */
+    @Scheduled(fixedDelayString = "${sse.fanout.lease-renew-interval:5s}")
+    public void maintainLease() {
+        if (!props.isEnabled())
+            return;
+        boolean held;
+        try {
+            if (leader) {
+                Long renewed = redisTemplate.execute(RENEW_LEASE_SCRIPT, List.of(props.getLeaderKey()),
+                        nodeId, String.valueOf(props.getLeaseTtl().toMillis()));
+                held = renewed != null && renewed == 1L;
+            } else {
+                held = Boolean.TRUE.equals(redisTemplate.opsForValue()
+                        .setIfAbsent(props.getLeaderKey(), nodeId, props.getLeaseTtl()));
+            }
+        } catch (Exception e) {
+            log.warn("[SSE] fan-out 리더 lease 확인 실패 : {}", e.getMessage());
+            held = false;
+        }
+        if (held != leader) {
+            log.info("[SSE] fan-out 리더 {} nodeId={}", held ? "획득" : "상실", nodeId);
+        }
+        leader = held;
+    }
+
+    private void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 4);
+        Consumer<FanoutEvent> h = handler;
+        if (parts.length < 4 || h == null)
+            return;
+        FanoutEvent event;
+        try {
+            event = new FanoutEvent(Long.parseLong(parts[0]), parts[1], parts[2].isEmpty() ? null : parts[2], parts[3]);
+        } catch (NumberFormatException e) {
+            log.debug("[SSE] 잘못된 fan-out 메시지 userId={}", parts[0]);
+            return;
+        }
+        // 같은 사용자는 같은 lane → 리스너 스레드가 넘긴 순서대로 전달
+        lanes[Math.floorMod(event.userId(), lanes.length)].execute(() -> {
+            try {
+                h.accept(event);
+            } catch (Exception e) {
+                log.warn("[SSE] fan-out 전달 실패 userId={}, event={} : {}", event.userId(), event.event(), e.getMessage());
+            }
+        });
+    }
+
+    // 종료 시 lease 를 바로 반납 → 다른 인스턴스가 TTL 만료를 기다리지 않고 이어받음
+    @Override
+    public void destroy() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        if (!leader)
+            return;
+        leader = false;
+        try {
+            redisTemplate.execute(RELEASE_LEASE_SCRIPT, List.of(props.getLeaderKey()), nodeId);
+        } catch (Exception e) {
+            log.debug("[SSE] fan-out lease 반납 실패 : {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @param userId 받을 사용자 PK
+     * @param event 이벤트 이름 (suggestions / upload)
+     * @param eventId 이벤트 ID (없으면 null)
+     * @param json 직렬화된 데이터
+     */
+    record FanoutEvent(Long userId, String event, @Nullable String eventId, String json) {
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.mindtrack.SSE;
+
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/*
+ * 미리 직렬화해 둔 SSE 이벤트 한 건 (event/id/retry/data 줄 + 빈 줄)
+ * 한 번 만들어 같은 사용자의 여러 연결, 재연결 복구, heartbeat 전체 연결에 그대로 씀
+ * → 연결마다 Jackson 직렬화 / SseEventBuilder 생성을 반복하지 않음
+ * 불변 객체라 여러 writer 스레드에서 같이 써도 됨
+ */
+final class SseFrame {
+
+    private final byte[] bytes;
+    private final Set<ResponseBodyEmitter.DataWithMediaType> items;
+
+    private SseFrame(byte[] bytes) {
+        this.bytes = bytes;
+        // byte[] 는 ByteArrayHttpMessageConverter 가 그대로 씀
+        this.items = Set.of(new ResponseBodyEmitter.DataWithMediaType(bytes, MediaType.TEXT_PLAIN));
+    }
+
+    /**
+     * @param name 이벤트 이름
+     * @param id 이벤트 ID (없으면 id 줄 생략)
+     * @param json 한 줄 JSON (줄바꿈 없음 - Jackson 기본 출력)
+     * @param reconnectTimeMs retry 값
+     */
+    static SseFrame of(String name, @Nullable String id, String json, long reconnectTimeMs) {
+        StringBuilder sb = new StringBuilder(json.length() + 64);
+        sb.append("event:").append(name).append('\n');
+        if (id != null) {
+            sb.append("id:").append(id).append('\n');
+        }
+        sb.append("retry:").append(reconnectTimeMs).append('\n');
+        sb.append("data:").append(json).append("\n\n");
+        return new SseFrame(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // 서블릿 SseEmitter 용
+    Set<ResponseBodyEmitter.DataWithMediaType> items() {
+        return items;
+    }
+
+    // Reactor Netty 용 (감싸서 쓰기만 하고 내용은 바꾸지 않음)
+    byte[] bytes() {
+        return bytes;
+    }
+}
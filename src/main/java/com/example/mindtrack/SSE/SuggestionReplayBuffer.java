@@ -0,0 +1,105 @@
+package com.example.mindtrack.SSE;
+
+import com.example.mindtrack.Config.SseHubProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * SSE 재연결(Last-Event-ID) 복구용 사용자별 최근 suggestions 이벤트 링 버퍼 (메모리)
+ * - 이벤트 ID = suggestion id (PgSuggestionsListener 가 publish 에 넘기는 값, 증가하는 값)
+ * - 모든 인스턴스가 같은 NOTIFY(fan-out 모드면 같은 Redis 메시지)를 받아 전달하므로 구독자가 없는 인스턴스도 기록해 둠
+ *   → 다른 인스턴스로 재연결돼도 복구 가능
+ * - 사용자별 최대 replay-capacity 개, 마지막 기록/조회 후 replay-ttl 동안 보관
+ *   (링은 제자리에서 고치므로 expireAfterWrite 면 이벤트가 계속 오는 사용자도 처음 만든 시각 기준으로 만료됨 → expireAfterAccess)
+ * - 기록+전송 / 복구+등록은 사용자별 lock 안에서 (링 객체가 아니라 밖의 stripe 로 잠금
+ *   → 링이 만료/밀려나서 새로 만들어지는 사이에도 publish 와 재연결이 같은 lock 을 씀)
+ * 버퍼가 온전히 가진 구간(completeAfter 초과)보다 Last-Event-ID 가 오래됐으면 빠진 이벤트가 있을 수 있음
+ * → gap 으로 알려서 클라이언트가 전체 조회 (인스턴스 재시작/버퍼 만료 직후, 버퍼에서 밀려난 경우)
+ */
+@Component
+public class SuggestionReplayBuffer {
+
+    private static final int LOCK_STRIPES = 256;
+
+    private final int capacity;
+    private final Cache<Long, Ring> rings;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public SuggestionReplayBuffer(SseHubProperties props) {
+        this.capacity = Math.max(1, props.getReplayCapacity());
+        this.rings = Caffeine.newBuilder()
+                .maximumSize(props.getReplayMaxUsers())
+                .expireAfterAccess(props.getReplayTtl())
+                .build();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    // 사용자 lock (publish / 재연결 복구가 이 객체로 동기화, 링을 꺼내고 쓰는 것까지 이 안에서)
+    Object lockFor(Long userId) {
+        return locks[Math.floorMod(userId.hashCode(), LOCK_STRIPES)];
+    }
+
+    // 사용자 링 - lockFor(userId) 안에서 호출
+    Ring ring(Long userId) {
+        return rings.get(userId, k -> new Ring(capacity));
+    }
+
+    static final class Ring {
+        private final int capacity;
+        private final ArrayDeque<Entry> entries;
+        // 이 ID 보다 큰 이벤트는 모두 버퍼에 있음 (링이 만들어지기 전 기록은 알 수 없으므로 처음에는 최대값)
+        private long completeAfter = Long.MAX_VALUE;
+
+        private Ring(int capacity) {
+            this.capacity = capacity;
+            this.entries = new ArrayDeque<>(capacity);
+        }
+
+        /**
+         * 호출하는 쪽이 synchronized(lockFor(userId)) 안에서 사용
+         * @return 새로 기록했으면 true, 이미 있는 ID 면 false (중복 발행)
+         */
+        boolean record(long eventId, SseFrame frame) {
+            for (Entry e : entries) {
+                if (e.eventId() == eventId)
+                    return false;
+            }
+            if (completeAfter == Long.MAX_VALUE) {
+                completeAfter = eventId - 1;
+            }
+            if (entries.size() >= capacity) {
+                completeAfter = Math.max(completeAfter, entries.pollFirst().eventId());
+            }
+            entries.addLast(new Entry(eventId, frame));
+            return true;
+        }
+
+        /**
+         * lastEventId 이후 이벤트 (오래된 것부터)
+         * 호출하는 쪽이 synchronized(lockFor(userId)) 안에서 사용
+         */
+        Replay since(long lastEventId) {
+            List<Entry> missed = new ArrayList<>();
+            for (Entry e : entries) {
+                if (e.eventId() > lastEventId)
+                    missed.add(e);
+            }
+            return new Replay(missed, lastEventId < completeAfter);
+        }
+    }
+
+    // 직렬화된 프레임을 그대로 보관 → 복구할 때 다시 직렬화하지 않음
+    record Entry(long eventId, SseFrame frame) {
+    }
+
+    // gap: 버퍼에서 이미 밀려나 복구하지 못한 이벤트가 있음
+    record Replay(List<Entry> entries, boolean gap) {
+    }
+}
@@ -1,28 +1,104 @@
 package com.example.mindtrack.SSE;
 
+import com.example.mindtrack.Config.SseHubProperties;
 import com.example.mindtrack.DTO.SuggestionPayload;
+import com.example.mindtrack.DTO.UploadTicket;
 import com.example.mindtrack.Util.CustomException;
+import com.example.mindtrack.Util.ThreadFactories;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.lang.Nullable;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Flux;
 
-import java.io.IOException;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
+/*
+ * 사용자별 SSE 연결 허브
+ * - 사용자를 writer 샤드(단일 스레드 executor)로 나눔 → 같은 사용자의 이벤트는 항상 같은 스레드에서 순서대로 전송
+ * - publish 는 연결별 전송 대기열(SseConnection)에 넣기만 하고 바로 돌아감
+ *   → PG LISTEN 루프나 업로드 파이프라인 스레드가 느린 클라이언트의 소켓 쓰기를 기다리지 않음
+ * - 대기열이 가득 찬 느린 클라이언트는 sse.hub.slow-consumer-policy 에 따라 오래된 이벤트를 버리거나 연결을 끊음
+ *   (느린 클라이언트의 쓰기는 같은 샤드의 다른 사용자만 늦출 수 있고, stall-timeout 이 지나면 휠이 샤드를 새 스레드로 교체)
+ * - 이벤트는 한 번만 직렬화(SseFrame)해서 같은 사용자의 모든 연결과 재연결 복구에 공유, heartbeat 프레임도 휠 tick 마다 하나
+ * - suggestions 이벤트는 사용자별 링 버퍼(SuggestionReplayBuffer)에도 기록 → 재연결 시 Last-Event-ID 이후 이벤트를 다시 보냄
+ *   기록 + 전송과 구독 + 복구는 같은 사용자 lock(SuggestionReplayBuffer.lockFor)으로 동기화 → 재연결 중 들어온 이벤트가 빠지거나 두 번 가지 않음
+ * - heartbeat 는 타이머 휠(HeartbeatWheel)이 interval 에 걸쳐 나눠서, 조용했던 연결에만 보냄
+ *   전송이 멈춘 연결(dead peer)도 휠이 찾아서 끊음
+ * - sse.fanout.enabled=true 면 이벤트를 직접 전달하지 않고 SseFanout 으로 Redis 에 발행
+ *   → 모든 인스턴스가 구독으로 받아서 자기에게 붙은 연결에만 전달 (사용자가 어느 인스턴스에 붙어 있어도 받음)
+ * - 연결은 서블릿 SseEmitter(subscribe) 또는 Reactor Netty Flux(subscribeFlux, ReactiveSseServer) - 같은 대기열/정책/복구를 씀
+ */
 @Component
 @Slf4j
-public class SuggestionSseHub {
-    // 사용자별 연결된 SSE Emitter 세션 목록
-    private final ConcurrentMap<Long, Set<SseEmitter>> emitters = new ConcurrentHashMap<>();
+public class SuggestionSseHub implements InitializingBean, DisposableBean {
+    // 사용자별 연결된 SSE 연결 목록
+    private final ConcurrentMap<Long, Set<SseConnection>> connections = new ConcurrentHashMap<>();
     // SSE 기본 timeout: 0은 무제한
     private static final long NO_TIMEOUT = 0L;
+    private static final long RECONNECT_TIME_MS = 3000;
+
+    private final SseHubProperties props;
+    private final SuggestionReplayBuffer replayBuffer;
+    private final SseFanout fanout;
+    private final ObjectMapper om;
+    private final WriterShard[] writers;
+    private final Counter droppedCounter;
+    private final Counter slowDisconnectedCounter;
+    private final HeartbeatWheel heartbeatWheel;
+
+    public SuggestionSseHub(
+            SseHubProperties props,
+            SuggestionReplayBuffer replayBuffer,
+            SseFanout fanout,
+            ObjectMapper om,
+            MeterRegistry meterRegistry,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.props = props;
+        this.replayBuffer = replayBuffer;
+        this.fanout = fanout;
+        this.om = om;
+        int shards = props.resolvedWriterShards();
+        this.writers = new WriterShard[shards];
+        for (int i = 0; i < shards; i++) {
+            writers[i] = new WriterShard("sse-writer-" + i, ThreadFactories.named("sse-writer-" + i, virtualThreads));
+        }
+
+        Gauge.builder("sse.connections", connections, SuggestionSseHub::countConnections)
+                .description("열려 있는 SSE 연결 수")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("sse.events.dropped")
+                .description("느린 클라이언트 대기열이 가득 차서 버린 이벤트 수")
+                .register(meterRegistry);
+        this.slowDisconnectedCounter = Counter.builder("sse.connections.slow_disconnected")
+                .description("느린 클라이언트라서 끊은 연결 수")
+                .register(meterRegistry);
+        Counter deadPeerCounter = Counter.builder("sse.connections.dead_peer")
+                .description("전송이 진행되지 않아 heartbeat 휠이 끊은 연결 수")
+                .register(meterRegistry);
+        this.heartbeatWheel = new HeartbeatWheel(props.getHeartbeatInterval().toMillis(),
+                props.getHeartbeatTick().toMillis(), props.getStallTimeout().toMillis(),
+                SuggestionSseHub::heartbeatFrame, deadPeerCounter, props.getStallCloserThreads(), virtualThreads);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        heartbeatWheel.start();
+        fanout.register(e -> deliver(e.userId(), e.event(), e.eventId(), e.json()));
+    }
 
     /**
      * 클라이언트가 구독 요청을 보낼 때 호출
@@ -30,34 +106,76 @@ public class SuggestionSseHub {
      * @return SseEmitter객체
      */
     public SseEmitter subscribe(Long userId) {
+        return subscribe(userId, null);
+    }
+
+    /**
+     * 재연결 구독 - Last-Event-ID 이후 suggestions 이벤트를 먼저 다시 보냄
+     * 링 버퍼에서 이미 밀려난 이벤트가 있을 수 있으면 "resync" 이벤트를 보내서 클라이언트가 전체 조회하도록 함
+     * @param userId SSE 연결을 식별할 사용자 ID
+     * @param lastEventId 클라이언트가 마지막으로 받은 이벤트 ID (없거나 숫자가 아니면 복구 안 함)
+     * @return SseEmitter객체
+     */
+    public SseEmitter subscribe(Long userId, @Nullable String lastEventId) {
         SseEmitter em = new SseEmitter(NO_TIMEOUT);
-        emitters.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet()).add(em);
-
-        // Emitter 정리 로직: 연결 종료, 타임아웃, 에러 발생 시 호출됨
-        Runnable cleanup = () -> {
-            Set<SseEmitter> list = emitters.get(userId);
-            if(list != null){
-                list.remove(em);
-                if(list.isEmpty()) emitters.remove(userId);
-            }
-        };
-        em.onCompletion(cleanup);
-        em.onTimeout(cleanup);
-        em.onError(ex -> cleanup.run());
+        EmitterSseConnection conn = new EmitterSseConnection(userId, em, writerFor(userId),
+                props.getConnectionQueueCapacity(), props.getSlowConsumerPolicy(),
+                droppedCounter, slowDisconnectedCounter, this::remove);
+
+        em.onCompletion(() -> conn.close(null));
+        em.onTimeout(() -> conn.close(null));
+        em.onError(conn::close);
+
+        attach(conn, lastEventId);
+        return em;
+    }
+
+    /**
+     * Reactor Netty 용 구독 (ReactiveSseServer) - 서블릿 구독과 같은 허브/재연결 복구/heartbeat 휠을 씀
+     * 구독(subscribe)될 때 연결을 등록하고, 클라이언트가 끊으면(cancel) 제거
+     * @param userId SSE 연결을 식별할 사용자 ID
+     * @param lastEventId 클라이언트가 마지막으로 받은 이벤트 ID (없거나 숫자가 아니면 복구 안 함)
+     */
+    Flux<SseFrame> subscribeFlux(Long userId, @Nullable String lastEventId) {
+        return Flux.create(sink -> attach(new FluxSseConnection(userId, sink,
+                props.getConnectionQueueCapacity(), props.getSlowConsumerPolicy(),
+                droppedCounter, slowDisconnectedCounter, this::remove), lastEventId));
+    }
 
+    // 초기 heartbeat + (재연결이면) 복구 이벤트를 넣고 등록
+    private void attach(SseConnection conn, @Nullable String lastEventId) {
+        Long userId = conn.userId;
         // 초기 heartbeat 이벤트 전송(연결 테스트용)
-        try {
-            em.send(SseEmitter.event()
-                    .name("heartbeat")
-                    .data(Map.of("ts", System.currentTimeMillis()))
-                    .reconnectTime(3000));
-        } catch (IOException e) {
-            em.complete();
-            cleanup.run();
-            log.debug("초기 heartbeat 전송 실패: {}", e.getMessage());
+        conn.offer(heartbeatFrame(System.currentTimeMillis()));
+
+        Long lastId = parseEventId(lastEventId);
+        if (lastId == null) {
+            register(conn);
+            return;
         }
 
-        return em;
+        synchronized (replayBuffer.lockFor(userId)) {
+            SuggestionReplayBuffer.Replay replay = replayBuffer.ring(userId).since(lastId);
+            for (SuggestionReplayBuffer.Entry entry : replay.entries()) {
+                conn.offer(entry.frame());
+            }
+            if (replay.gap()) {
+                conn.offer(frame("resync", Map.of("lastEventId", lastId), null));
+            }
+            register(conn);
+            log.info("[SSE] 재연결 복구 userId={}, lastEventId={}, 다시 보낸 이벤트={}, gap={}",
+                    userId, lastId, replay.entries().size(), replay.gap());
+        }
+    }
+
+    // 추가/제거를 같은 키의 compute 안에서 처리 (마지막 연결 제거와 새 연결 추가가 겹쳐도 목록을 잃지 않음)
+    private void register(SseConnection conn) {
+        connections.compute(conn.userId, (k, set) -> {
+            if(set == null) set = ConcurrentHashMap.newKeySet();
+            set.add(conn);
+            return set;
+        });
+        heartbeatWheel.add(conn);
     }
 
     /**
@@ -67,52 +185,123 @@ public class SuggestionSseHub {
      * @param eventId 이벤트 고유 ID(Last-Event-ID 복구용)
      */
     public void publish(Long userId, SuggestionPayload payload, @Nullable String eventId){
-        Set<SseEmitter> list = emitters.get(userId);
+        dispatch(userId, "suggestions", payload, eventId);
+    }
+
+    /**
+     * 비동기 업로드 처리 결과를 해당 사용자에게 발행
+     * @param userId 이벤트를 받을 사용자 ID
+     * @param ticket 업로드 티켓 (DONE / FAILED)
+     */
+    public void publishUpload(Long userId, UploadTicket ticket){
+        dispatch(userId, "upload", ticket, null);
+    }
+
+    // 한 번만 직렬화 → fan-out 이 켜져 있으면 Redis 로 발행(구독으로 돌아와서 deliver), 아니면(또는 발행 실패 시) 바로 로컬 전달
+    private void dispatch(Long userId, String name, Object data, @Nullable String eventId) {
+        String json = toJson(name, data, eventId);
+        if (json == null)
+            return;
+        if (fanout.isEnabled() && fanout.publish(userId, name, eventId, json))
+            return;
+        deliver(userId, name, eventId, json);
+    }
+
+    // 이 인스턴스에 붙은 연결에 전달 (ID 가 있는 이벤트는 재연결 복구용 링 버퍼에도 기록)
+    private void deliver(Long userId, String name, @Nullable String eventId, String json) {
+        SseFrame frame = SseFrame.of(name, eventId, json, RECONNECT_TIME_MS);
+        Long id = parseEventId(eventId);
+        if (id == null) {
+            send(userId, frame);
+            return;
+        }
+        // 구독자가 없어도 기록 (곧 재연결하거나 다른 인스턴스에서 넘어올 수 있음)
+        // 이미 기록된 ID 면 보내지 않음 (fan-out 리더가 바뀌는 사이 같은 suggestion 이 두 번 발행될 수 있음)
+        synchronized (replayBuffer.lockFor(userId)) {
+            if (replayBuffer.ring(userId).record(id, frame)) {
+                send(userId, frame);
+            }
+        }
+    }
+
+    // 연결별 대기열에 넣기만 함 (실제 전송은 writer 샤드 / Reactor Netty), 모든 연결이 같은 프레임을 공유
+    private void send(Long userId, SseFrame frame){
+        Set<SseConnection> list = connections.get(userId);
         if(list == null || list.isEmpty()) {
             log.info("⚠️ No SSE subscribers found for userId={}", userId);
             return;
         }
 
-        for(SseEmitter emitter : list){
-            try{
-                var event = SseEmitter.event()
-                        .name("suggestions")
-                        .data(payload)
-                        .reconnectTime(3000);
-
-                if(eventId != null) event = event.id(eventId);
-
-                emitter.send(event);
-                log.info("✅ Emitter send complete for userId={}", userId);
-            }catch (IOException e) {
-                log.info("Publish failed for user {} : {}", userId, e.getMessage());
-                emitter.completeWithError(e);
-                list.remove(emitter);
-            }
+        for(SseConnection conn : list){
+            conn.offer(frame);
         }
+        log.debug("✅ Emitter send queued for userId={}, connections={}", userId, list.size());
+    }
+
+    // 연결 정리 로직: 연결 종료, 타임아웃, 에러, 전송 실패/느린 클라이언트 시 호출됨
+    private void remove(SseConnection conn) {
+        heartbeatWheel.remove(conn);
+        connections.computeIfPresent(conn.userId, (k, set) -> {
+            set.remove(conn);
+            return set.isEmpty() ? null : set;
+        });
     }
 
     /**
-     * 모든 연결된 클라이언트에게 주기적으로 heartbeat 이벤트를 전송
-     * DB 이벤트가 오랫동안 없더라도 연결이 끊기지 않도록 유지
+     * 이벤트 한 건을 한 번만 직렬화 (MVC 와 같은 ObjectMapper → 기존 SseEmitter.data() 와 같은 JSON)
+     * @return 직렬화 실패 시 null
      */
-    @Scheduled(fixedRate = 25000)
-    public void broadcastHeartbeat(){
-        long ts = System.currentTimeMillis();
-        emitters.forEach((userId, list) -> {
-            for(SseEmitter emitter : list){
-                try{
-                    emitter.send(SseEmitter.event()
-                            .name("heartbeat")
-                            .data(Map.of("ts", ts))
-                            .reconnectTime(3000));
-                } catch(IOException e){
-                    emitter.complete();
-                    list.remove(emitter);
-                    log.debug("Heartbeat failed for user {} : {}", userId, e.getMessage());
-                }
-            }
-        });
+    @Nullable
+    private SseFrame frame(String name, Object data, @Nullable String eventId) {
+        String json = toJson(name, data, eventId);
+        return json == null ? null : SseFrame.of(name, eventId, json, RECONNECT_TIME_MS);
+    }
+
+    @Nullable
+    private String toJson(String name, Object data, @Nullable String eventId) {
+        try {
+            return om.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            log.warn("[SSE] 이벤트 직렬화 실패 name={}, eventId={} : {}", name, eventId, e.getMessage());
+            return null;
+        }
+    }
+
+    // heartbeat 는 {"ts":...} 고정 형식이라 ObjectMapper 없이 만듦
+    private static SseFrame heartbeatFrame(long ts) {
+        return SseFrame.of("heartbeat", null, "{\"ts\":" + ts + "}", RECONNECT_TIME_MS);
+    }
+
+    @Nullable
+    private static Long parseEventId(@Nullable String eventId) {
+        if (eventId == null || eventId.isBlank())
+            return null;
+        try {
+            return Long.parseLong(eventId.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private WriterShard writerFor(Long userId) {
+        return writers[Math.floorMod(userId.hashCode(), writers.length)];
+    }
+
+    private static double countConnections(ConcurrentMap<Long, Set<SseConnection>> connections) {
+        long count = 0;
+        for (Set<SseConnection> set : connections.values()) {
+            count += set.size();
+        }
+        return count;
+    }
+
+    @Override
+    public void destroy() {
+        heartbeatWheel.stop();
+        connections.values().forEach(set -> set.forEach(conn -> conn.close(null)));
+        for (WriterShard writer : writers) {
+            writer.shutdown();
+        }
     }
 
 /*    public void publishRaw(String userId, Map<String, Object> rawPayload) {
@@ -0,0 +1,76 @@
+package com.example.mindtrack.SSE;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * SSE writer 샤드 - 단일 스레드로 emitter.send 를 순서대로 처리
+ * - 서블릿 send 는 소켓 쓰기가 끝날 때까지 막힘 → 읽지 않는 클라이언트 하나가 샤드 스레드를 붙잡으면 같은 샤드의 다른 사용자도 멈춤
+ * - 그래서 heartbeat 휠이 멈춘 전송(stall-timeout)을 찾으면 detach 로 샤드를 떼어 냄
+ *   막힌 스레드는 그대로 두고(끊긴 연결의 쓰기가 실패하면 끝남) 새 스레드를 만들어 대기 중이던 drain 을 옮김
+ *   (interrupt 하지 않음 → 그 사이 다른 연결을 보내던 중이라도 정상 연결을 끊지 않음)
+ * - 같은 연결의 drain 은 한 번에 하나뿐이므로 스레드가 바뀌어도 연결 안의 순서는 유지됨
+ */
+@Slf4j
+final class WriterShard implements Executor {
+
+    private final String name;
+    private final ThreadFactory threads;
+    private volatile ThreadPoolExecutor executor;
+
+    WriterShard(String name, ThreadFactory threads) {
+        this.name = name;
+        this.threads = threads;
+        this.executor = newExecutor();
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        while (true) {
+            ThreadPoolExecutor current = executor;
+            try {
+                current.execute(task);
+                return;
+            } catch (RejectedExecutionException e) {
+                // detach 로 바뀌는 중 → 새 executor 로 다시 (종료 중이면 버림)
+                if (current == executor)
+                    throw e;
+            }
+        }
+    }
+
+    /**
+     * 막힌 스레드를 떼어 내고 새 스레드로 교체 (대기 중이던 작업은 순서대로 옮김)
+     * heartbeat 휠이 이 샤드의 연결이 멈춘 것을 찾았을 때 호출
+     */
+    synchronized void detach() {
+        ThreadPoolExecutor stuck = executor;
+        if (stuck.isShutdown())
+            return;
+        ThreadPoolExecutor fresh = newExecutor();
+        executor = fresh;
+        stuck.shutdown();
+        List<Runnable> pending = new ArrayList<>();
+        stuck.getQueue().drainTo(pending);
+        pending.forEach(fresh::execute);
+        log.info("[SSE] writer 샤드 {} 교체 - 멈춘 전송을 떼어 내고 대기 작업 {}개를 새 스레드로 옮김", name, pending.size());
+    }
+
+    void shutdown() {
+        synchronized (this) {
+            executor.shutdown();
+        }
+    }
+
+    private ThreadPoolExecutor newExecutor() {
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), threads);
+    }
+}
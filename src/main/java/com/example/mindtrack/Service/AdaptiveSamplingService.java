@@ -1,137 +1,196 @@
 package com.example.mindtrack.Service;
 
 import com.example.mindtrack.Util.CustomException;
+import com.example.mindtrack.Util.ImageHash;
+import com.example.mindtrack.Util.ScreenshotFrame;
 import com.example.mindtrack.Domain.ScreenshotImage;
 import com.example.mindtrack.Domain.Users;
 import com.example.mindtrack.Enum.AnalysisStatus;
 import com.example.mindtrack.Repository.ScreenshotImageRepository;
-import com.example.mindtrack.Repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.spi.ImageWriterSpi;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Optional;
 
-import java.awt.Graphics2D;
-import java.awt.RenderingHints;
-
+/*
+ * 스크린샷 샘플링은 아래 단계로 나뉘어 있음 (UploadPipelineService 가 단계별 executor 로 실행)
+ * 1) sample  : 해시 + 밝기 평면 계산 (CPU)
+ * 2) dedup   : 사용자 조회 + Redis 최근 해시 후보 탐색 + SSIM 재검증 (기준은 SamplingRateController 가 사용자별로 결정)
+ * 3) encode  : 저장할 원본 바이트 준비 (기본은 업로드 바이트 그대로)
+ * 4) store   : Redis 저장 + pending 큐 enqueue
+ * processImageSampling 은 같은 단계를 요청 스레드에서 순서대로 실행하는 동기 버전
+ */
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class AdaptiveSamplingService {
 
-    private final UserRepository userRepository;
+    private final UserLookupService userLookupService;
     private final SimilarityCheckService similarityCheckService;
     private final ScreenshotImageCacheService screenshotImageCacheService;
+    // SSIM 기준 / 해밍거리 / 업로드 간격 힌트는 대기열 깊이 + 사용자별 중복 비율에 따라 조절 (sampling.control.*)
+    private final SamplingRateController samplingRateController;
 
-    private static final double SIMILARITY_THRESHOLD = 0.95;
+    // 원본 저장 포맷 변환 (예: png) - 비워두면 클라이언트가 보낸 바이트를 그대로 저장/전달
+    @Value("${sampling.original.convert-format:}")
+    private String convertFormat;
 
     /**
-     * 받은 이미지의 샘플링을 진행한다.
-     * 
+     * 받은 이미지의 샘플링을 진행한다. (동기 처리)
+     *
      * @param userId
-     * @param image
+     * @param frame 업로드된 스크린샷 (서브샘플링 미리보기 + 원본 인코딩 바이트)
      * @return
-     * @throws IOException
      */
-    public ResponseEntity<Map<String, Object>> processImageSampling(String userId, BufferedImage image) {
+    public ResponseEntity<Map<String, Object>> processImageSampling(String userId, ScreenshotFrame frame) {
+        try {
+            SampledFrame sampled = sample(frame);
+            DedupResult dedup = dedup(userId, sampled);
+            EncodedOriginal original = encodeOriginal(frame);
+            return new ResponseEntity<>(store(dedup, original), HttpStatus.OK);
+        } catch (Exception e) {
+            throw new CustomException("에러 발생: " + e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * 1단계: 해시 + 밝기 평면 계산
+     * 원본 해상도 디코딩 없이 서브샘플링 미리보기로 계산
+     */
+    public SampledFrame sample(ScreenshotFrame frame) {
+        BufferedImage preview = frame.preview();
+        // 이미지의 해시를 계산한다.
+        ImageHash newHash = similarityCheckService.computeHash(preview);
+        // SSIM 비교 및 캐시 저장에 같이 쓰는 128x128 밝기 평면
+        byte[] newPlane = similarityCheckService.toLuminancePlane(preview);
+        return new SampledFrame(frame, newHash, newPlane);
+    }
+
+    /**
+     * 2단계: Redis 후보 이미지 찾기 (2차 샘플링) + SSIM 재검증 (3차 샘플링)
+     * 응답에는 다음 업로드까지 기다릴 간격 힌트(uploadIntervalMs)를 같이 담음
+     */
+    public DedupResult dedup(String userId, SampledFrame sampled) {
         Map<String, Object> response = new HashMap<>();
+        SamplingRateController.SamplingParams params = samplingRateController.paramsFor(userId);
+        response.put("uploadIntervalMs", params.uploadIntervalMs());
 
-        // 유저아이디를 통해 유저를 찾는다
-        Users user = userRepository.findByUserId(userId)
+        // 유저아이디를 통해 유저를 찾는다 (near-cache → DB)
+        Users user = userLookupService.findByUserId(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
 
-        // 1) Redis 후보 이미지 찾기 (2차 샘플링)
-        // 이미지의 해시를 계산한다.
-        long newHash = similarityCheckService.computeHash(image);
+        // 지금 들어온 이미지의 dHash 해시값과 레디스 캐시 값의 해밍거리를 계산하여 유사한 해시값을 가져옴
+        Optional<ScreenshotImageCacheService.Candidate> mostSimilarFromCache = screenshotImageCacheService
+                .findMostSimilarFromCache(user.getId(), sampled.hash(), params.maxDistance(),
+                        params.minHashSimilarity());
 
-        try {
-            // 지금 들어온 이미지의 dHash 해시값과 레디스 캐시 값의 해밍거리를 계산하여 유사한 해시값을 가져옴
-            Optional<ScreenshotImageCacheService.Candidate> mostSimilarFromCache = screenshotImageCacheService
-                    .findMostSimilarFromCache(user.getId(), newHash, 6);
-
-            // 2) 후보 이미지가 존재한다면 → 썸네일 가져와서 SSIM 유사도 재검증
-            if (mostSimilarFromCache.isPresent()) {
-                // DB 가 아닌 Redis 에서 썸네일 가져오기
-                Optional<byte[]> thumbBytesOpt = screenshotImageCacheService.getImageThumbByHash(user.getId(),
-                        mostSimilarFromCache.get().hash());
-
-                if (thumbBytesOpt.isPresent()) {
-                    // 3차 샘플링 구간
-                    //
-                    // 하지만, 해시 값이 같지만(dHash 계산으론 유사한 이미지이지만), 실제로 유사하지 않은 구조일 확률도 있으므로(타이핑이 더 됐다는
-                    // 등),
-                    // 한 번 더 같은 해시값으로 가져와진 이미지와 지금 들어온 이미지와 SSIM 유사도 계산을 진행
-
-                    // String prevSameHashS3url = optional.get().getS3url();
-                    // String prevSameHashFilePath =
-                    // prevSameHashS3url.replace("http://localhost:8080/", "");
-                    // BufferedImage prevSameHashImage = ImageIO.read(new
-                    // File(prevSameHashFilePath));
-
-                    // 레디스 캐시에서 가져온 byte를 다시 이미지로 변환
-                    byte[] thumbBytes = thumbBytesOpt.get();
-                    try (ByteArrayInputStream bais = new ByteArrayInputStream(thumbBytes)) {
-
-                        // 이전 썸네일
-                        BufferedImage prevThumb = ImageIO.read(bais);
-                        double reSimilarity = similarityCheckService.computeSimilarity(image, prevThumb);
-
-                        // 그 유사도가 높다면, 거의 일치하는 이미지라고 판단
-                        // 방문도를 높이고, 최근 방문 시간도 업데이트한다. <---- 방문도 관련 코드 제거
-                        if (reSimilarity >= SIMILARITY_THRESHOLD) {
-                            Long prevImageId = mostSimilarFromCache.get().imageId();
-                            boolean isProcessing = screenshotImageCacheService.isProcessing(user.getId(), prevImageId);
-
-                            if (isProcessing) {
-                                // 처리 중이라면 → 새 이미지로 저장
-                                response.put("parentImageId", prevImageId);
-                                return saveScreenshotImage(image, user, newHash, response);
-                            }
-
-                            else { // pending 상태라면 Redis에 덮어쓰기
-                                   // Redis에 저장(캐시 추가)
-                                   // 방금 들어온 "원본"을 기존 이미지ID 키로 Redis에 덮어쓰기
-                                byte[] originalBytesForReanalysis = imageToBytes(image);
-                                screenshotImageCacheService.cacheOriginalImage(user.getId(),
-                                        mostSimilarFromCache.get().imageId(), originalBytesForReanalysis);
-
-                                log.info("[재분석 예약] userId={}, prevImageId={}, status=PENDING 로 전환 + Redis 원본 덮어쓰기 완료",
-                                        user.getId(), mostSimilarFromCache.get().imageId());
-
-                                // AI 재분석 요청 결과 반환
-                                return ResponseEntity.ok(Map.of(
-                                        "success", true,
-                                        "similarity", reSimilarity,
-                                        "prevImageId", mostSimilarFromCache.get().imageId(),
-                                        "message", "저장된 적 있음! AI 재분석 요청"));
-                            }
-                        } else {
-                            response.put("prevImageId", mostSimilarFromCache.get().imageId());
-                            response.put("message",
-                                    "이전에 저장된 비슷한 이미지가 있지만(새 이미지 newHash와 유사도 9.7 이상 혹은 해밍거리 6이하가 있음), 실제로 구조가 다름(유사도SSIM가 낮음)");
-                        }
-                    }
-
-                } else {
-                    response.put("message", "이전에 저장된 역사가 없음, 새 이미지 newHash와 같은 값이 아예 없음");
-                }
+        // 후보 이미지가 존재한다면 → 밝기 평면 가져와서 SSIM 유사도 재검증
+        if (mostSimilarFromCache.isEmpty()) {
+            samplingRateController.recordDedup(userId, false);
+            return new DedupResult(user, sampled, null, response);
+        }
+
+        // DB 가 아닌 near-cache/Redis 에서 밝기 평면 가져오기 (JPEG 디코딩/리사이즈 없음)
+        Long prevImageId = mostSimilarFromCache.get().imageId();
+        Optional<byte[]> prevPlaneOpt = screenshotImageCacheService.getLuminancePlane(user.getId(),
+                mostSimilarFromCache.get().hash());
+
+        if (prevPlaneOpt.isEmpty()) {
+            response.put("message", "이전에 저장된 역사가 없음, 새 이미지 newHash와 같은 값이 아예 없음");
+            samplingRateController.recordDedup(userId, false);
+            return new DedupResult(user, sampled, null, response);
+        }
+
+        // 하지만, 해시 값이 같지만(dHash 계산으론 유사한 이미지이지만), 실제로 유사하지 않은 구조일 확률도 있으므로(타이핑이 더 됐다는
+        // 등), 한 번 더 같은 해시값으로 가져와진 이미지와 지금 들어온 이미지와 SSIM 유사도 계산을 진행
+        double reSimilarity = similarityCheckService.computeSimilarity(sampled.plane(), prevPlaneOpt.get());
+
+        // 그 유사도가 높다면, 거의 일치하는 이미지라고 판단
+        boolean duplicate = reSimilarity >= params.ssimThreshold();
+        samplingRateController.recordDedup(userId, duplicate);
+        if (!duplicate) {
+            response.put("prevImageId", prevImageId);
+            response.put("message",
+                    "이전에 저장된 비슷한 이미지가 있지만(새 이미지 newHash와 해밍거리 " + params.maxDistance()
+                            + " 이하가 있음), 실제로 구조가 다름(유사도SSIM가 낮음)");
+            return new DedupResult(user, sampled, null, response);
+        }
+
+        if (screenshotImageCacheService.isProcessing(user.getId(), prevImageId)) {
+            // 처리 중이라면 → 새 이미지로 저장
+            response.put("parentImageId", prevImageId);
+            return new DedupResult(user, sampled, null, response);
+        }
+
+        // pending 상태라면 기존 이미지ID 로 원본 덮어쓰기 (AI 재분석 요청)
+        response.put("success", true);
+        response.put("similarity", reSimilarity);
+        response.put("prevImageId", prevImageId);
+        response.put("message", "저장된 적 있음! AI 재분석 요청");
+        return new DedupResult(user, sampled, prevImageId, response);
+    }
+
+    /**
+     * 3단계: 저장할 원본 바이트 준비
+     * 변환 포맷이 없으면 업로드 바이트 그대로(재인코딩 없음), 있으면 원본 해상도로 디코딩 후 변환
+     */
+    public EncodedOriginal encodeOriginal(ScreenshotFrame frame) throws IOException {
+        if (convertFormat == null || convertFormat.isBlank()) {
+            return new EncodedOriginal(frame.encoded(), frame.contentType());
+        }
+        byte[] converted = imageToBytes(frame.fullImage(), convertFormat);
+        return new EncodedOriginal(converted, mimeTypeOf(convertFormat));
+    }
+
+    // ImageIO writer 가 알려주는 MIME 타입 ("jpg" → image/jpeg), writer 정보가 없으면 image/{format}
+    private static String mimeTypeOf(String format) {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (writers.hasNext()) {
+            ImageWriterSpi spi = writers.next().getOriginatingProvider();
+            if (spi != null && spi.getMIMETypes() != null && spi.getMIMETypes().length > 0) {
+                return spi.getMIMETypes()[0];
             }
-            // 신규 이미지 처리
-            return saveScreenshotImage(image, user, newHash, response);
+        }
+        return "image/" + format.toLowerCase();
+    }
 
-        } catch (Exception e) {
-            throw new CustomException("에러 발생: " + e.getMessage(), HttpStatus.BAD_REQUEST);
+    /**
+     * 4단계: Redis 저장 + pending 큐 enqueue
+     * @return 클라이언트에게 돌려줄 결과
+     */
+    public Map<String, Object> store(DedupResult dedup, EncodedOriginal original) {
+        Users user = dedup.user();
+
+        if (dedup.reuseImageId() != null) {
+            // 방금 들어온 "원본"을 기존 이미지ID 키로 Redis에 덮어쓰기
+            screenshotImageCacheService.cacheOriginalImage(user.getId(), dedup.reuseImageId(),
+                    original.bytes(), original.contentType());
+            // 묶인 프레임 수 기록 + 아직 묶기 window 안이면 대기열에 넣는 시점을 미룸
+            long mergedFrames = screenshotImageCacheService.recordSupersededFrame(user.getId(), dedup.reuseImageId());
+            dedup.response().put("mergedFrames", mergedFrames);
+
+            log.info("[재분석 예약] userId={}, prevImageId={}, status=PENDING 로 전환 + Redis 원본 덮어쓰기 완료",
+                    user.getId(), dedup.reuseImageId());
+
+            // AI 재분석 요청 결과 반환
+            return dedup.response();
         }
+
+        // 신규 이미지 처리
+        return saveScreenshotImage(dedup.sampled(), user, original, dedup.response());
     }
 
     // AWS S3 SDK 사용, 현재는 로컬 저장으로 구현되어있음
@@ -143,59 +202,47 @@ public class AdaptiveSamplingService {
      * File file = new File("uploads/" + fileName);
      * file.getParentFile().mkdirs(); // 폴더 없으면 생성
      * ImageIO.write(image, "png", file);
-     * 
+     *
      * return "http://localhost:8080/uploads/" + fileName;
      * }
      */
 
-    private byte[] imageToBytes(BufferedImage image) {
+    private byte[] imageToBytes(BufferedImage image, String format) {
         try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            ImageIO.write(image, "png", baos);
+            if (!ImageIO.write(image, format, baos)) {
+                throw new IOException("No ImageIO writer for format: " + format);
+            }
             return baos.toByteArray();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
-    // 썸네일(축소/압축) 바이트 생성 – 메모리 절약용
-    private byte[] toThumbnailBytes(BufferedImage src) throws IOException {
-        int targetW = 480; // 필요에 맞게 조정 가능
-        int w = src.getWidth(), h = src.getHeight();
-        int newW = Math.max(1, targetW);
-        int newH = Math.max(1, (int) Math.round((double) h * newW / Math.max(1, w)));
-
-        BufferedImage scaled = new BufferedImage(newW, newH, BufferedImage.TYPE_INT_RGB);
-        Graphics2D g = scaled.createGraphics();
-        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-        g.drawImage(src, 0, 0, newW, newH, null);
-        g.dispose();
-
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            // PNG보다 용량이 작은 JPG로 설정
-            ImageIO.write(scaled, "jpg", baos);
-            return baos.toByteArray();
-        }
-    }
-
-    private ResponseEntity<Map<String, Object>> saveScreenshotImage(BufferedImage image, Users user, Long newHash,
-            Map<String, Object> response) throws IOException {
+    private Map<String, Object> saveScreenshotImage(SampledFrame sampled, Users user, EncodedOriginal original,
+            Map<String, Object> response) {
         // String s3Url = s3UploadAndReturnURL(image, user.getUserId());
-        byte[] originalBytes = imageToBytes(image); // 원본 바이트
-        byte[] thumbBytes = toThumbnailBytes(image); // 썸네일 바이트
 
         // === 신규 이미지 Redis 저장====
-        // Redis에 저장(캐시 추가) -> 최근 리스트 + 썸네일(TTL) 저장
-        Long newImageId = screenshotImageCacheService.generateNewImageId(user.getId());
-
-        screenshotImageCacheService.cacheRecentImageHash(user.getId(), newImageId, newHash, thumbBytes);
-        screenshotImageCacheService.cacheOriginalImage(user.getId(), newImageId, originalBytes);
-
-        // 원본 저장 직후 반드시 pending 큐에 enqueue
-        screenshotImageCacheService.enqueueImage(user.getId(), newImageId);
+        // ID 발급 + 최근 리스트 + 밝기 평면 + 원본 바이트 + pending 큐 enqueue 를 Lua 스크립트 한 번으로 저장
+        // (단계별로 나눠 보내면 왕복 ~10회 + 같은 사용자 동시 업로드 간 경쟁 발생)
+        Long newImageId = screenshotImageCacheService.saveNewImage(user.getId(), sampled.hash(), sampled.plane(),
+                original.bytes(), original.contentType());
 
         response.put("currentImageId", newImageId);
         response.put("message", "새 이미지 Redis 저장 완료");
 
-        return new ResponseEntity<>(response, HttpStatus.OK);
+        return response;
+    }
+
+    // 1단계 결과: 해시 + 밝기 평면
+    public record SampledFrame(ScreenshotFrame frame, ImageHash hash, byte[] plane) {
+    }
+
+    // 2단계 결과: reuseImageId 가 있으면 기존 pending 이미지 덮어쓰기, 없으면 새 이미지로 저장
+    public record DedupResult(Users user, SampledFrame sampled, Long reuseImageId, Map<String, Object> response) {
+    }
+
+    // 3단계 결과: Redis/FastAPI 로 넘길 원본 바이트
+    public record EncodedOriginal(byte[] bytes, String contentType) {
     }
-}
\ No newline at end of file
+}
@@ -34,7 +34,7 @@ public class AuthService {
         u.setPassword(passwordEncoder.encode(req.getPassword())); // 해시 저장
 
         Users saved = userRepository.save(u);
-        String token = jwtUtil.generateToken(saved.getUserId(), saved.getEmail());
+        String token = jwtUtil.generateToken(saved.getId(), saved.getUserId(), saved.getEmail());
         return new AuthResponse(saved.getUserId(), saved.getEmail(), token);
     }
 
@@ -46,7 +46,7 @@ public class AuthService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "아이디 또는 비밀번호가 올바르지 않습니다.");
         }
 
-        String token = jwtUtil.generateToken(user.getUserId(), user.getEmail());
+        String token = jwtUtil.generateToken(user.getId(), user.getUserId(), user.getEmail());
         return new AuthResponse(user.getUserId(), user.getEmail(), token);
     }
 }
\ No newline at end of file
@@ -0,0 +1,162 @@
+package com.example.mindtrack.Service;
+
+import com.example.mindtrack.Config.NearCacheProperties;
+import com.example.mindtrack.Enum.NearCacheRegion;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/*
+ * 인스턴스 간 near-cache 무효화
+ * - pub/sub 채널(near-cache.channel)로 "nodeId|region|key" 메시지를 주고받음, 자기가 보낸 메시지는 무시
+ *   최근 해시 변경은 Lua 스크립트 안에서 바로 PUBLISH 하므로 업로드 경로에 왕복이 늘지 않음
+ * - 분석 상태(screenshot:status:*)는 FastAPI 워커/Lua 스크립트 여러 곳에서 바뀌므로
+ *   keyspace notification(__keyspace@*__:screenshot:status:*)으로 받음
+ * pub/sub 은 연결이 끊긴 동안의 메시지를 잃으므로 각 캐시는 verify-after / ttl 로 오래된 정도를 제한해야 함
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class NearCacheInvalidator implements InitializingBean {
+
+    private static final String STATUS_KEY_PREFIX = "screenshot:status:";
+    private static final String STATUS_KEYSPACE_PATTERN = "__keyspace@*__:" + STATUS_KEY_PREFIX + "*";
+    private static final String KEYSPACE_EVENTS = "K$gx";
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final NearCacheProperties props;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<NearCacheRegion, Consumer<String>> handlers = new ConcurrentHashMap<>();
+    private volatile boolean statusEventsActive;
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!props.isEnabled())
+            return;
+        listenerContainer.addMessageListener(this::onMessage, new ChannelTopic(props.getChannel()));
+
+        if (props.getStatus().isEnabled() && ensureKeyspaceEvents()) {
+            listenerContainer.addMessageListener(this::onKeyspaceEvent, new PatternTopic(STATUS_KEYSPACE_PATTERN));
+            statusEventsActive = true;
+        }
+        log.info("[NearCache] 무효화 구독 channel={}, nodeId={}, statusEvents={}", props.getChannel(), nodeId,
+                statusEventsActive);
+    }
+
+    public boolean isEnabled() {
+        return props.isEnabled();
+    }
+
+    // 상태 near-cache 를 써도 되는지 (keyspace notification 구독 중)
+    public boolean isStatusEventsActive() {
+        return statusEventsActive;
+    }
+
+    public void register(NearCacheRegion region, Consumer<String> handler) {
+        handlers.put(region, handler);
+    }
+
+    // Lua 스크립트에 넘기는 채널 (비활성화면 빈 값 → 스크립트가 PUBLISH 하지 않음)
+    public String channel() {
+        return props.isEnabled() ? props.getChannel() : "";
+    }
+
+    // 메시지 앞부분 ("nodeId|region|"), Lua 스크립트가 뒤에 키를 붙여서 PUBLISH
+    public String messagePrefix(NearCacheRegion region) {
+        return nodeId + "|" + region.name() + "|";
+    }
+
+    public void publish(NearCacheRegion region, String key) {
+        if (!props.isEnabled())
+            return;
+        try {
+            redisTemplate.convertAndSend(props.getChannel(), messagePrefix(region) + key);
+        } catch (Exception e) {
+            log.warn("[NearCache] 무효화 메시지 발행 실패 region={}, key={} : {}", region, key, e.getMessage());
+        }
+    }
+
+    private void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+        if (parts.length < 3 || nodeId.equals(parts[0]))
+            return;
+        try {
+            dispatch(NearCacheRegion.valueOf(parts[1]), parts[2]);
+        } catch (IllegalArgumentException e) {
+            log.debug("[NearCache] 알 수 없는 무효화 메시지 : {}", parts[1]);
+        }
+    }
+
+    // 채널 "__keyspace@0__:screenshot:status:12:34" → 키 "screenshot:status:12:34" (본문은 set/expired/del 등 이벤트 이름)
+    private void onKeyspaceEvent(Message message, byte[] pattern) {
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        int idx = channel.indexOf(STATUS_KEY_PREFIX);
+        if (idx >= 0) {
+            dispatch(NearCacheRegion.STATUS, channel.substring(idx));
+        }
+    }
+
+    private void dispatch(NearCacheRegion region, String key) {
+        Consumer<String> handler = handlers.get(region);
+        if (handler != null) {
+            handler.accept(key);
+        }
+    }
+
+    // notify-keyspace-events 에 K(keyspace) + $(string) + g(del/expire) + x(expired) 가 켜져 있는지 확인, 없으면 켜 봄
+    private boolean ensureKeyspaceEvents() {
+        try {
+            String current = redisTemplate.execute((RedisCallback<String>) connection -> currentEvents(connection));
+            String merged = mergeEvents(current == null ? "" : current);
+            if (merged.equals(current))
+                return true;
+            if (!props.getStatus().isConfigureKeyspaceEvents()) {
+                log.warn("[NearCache] notify-keyspace-events={} 에 {} 가 없어 상태 near-cache 사용 안 함", current,
+                        KEYSPACE_EVENTS);
+                return false;
+            }
+            redisTemplate.execute((RedisCallback<Object>) connection -> {
+                connection.serverCommands().setConfig("notify-keyspace-events", merged);
+                return null;
+            });
+            log.info("[NearCache] notify-keyspace-events {} → {}", current, merged);
+            return true;
+        } catch (Exception e) {
+            log.warn("[NearCache] keyspace notification 설정 실패, 상태 near-cache 사용 안 함 : {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private static String currentEvents(RedisConnection connection) {
+        Properties config = connection.serverCommands().getConfig("notify-keyspace-events");
+        return config == null ? null : config.getProperty("notify-keyspace-events");
+    }
+
+    // 'A' 는 g$lshzxet 전체를 뜻하므로 K 만 있으면 됨
+    private static String mergeEvents(String current) {
+        StringBuilder merged = new StringBuilder(current);
+        for (char c : KEYSPACE_EVENTS.toCharArray()) {
+            boolean covered = current.indexOf(c) >= 0 || (c != 'K' && current.indexOf('A') >= 0);
+            if (!covered)
+                merged.append(c);
+        }
+        return merged.toString();
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.mindtrack.Service;
+
+import com.example.mindtrack.Config.SamplingControlProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Service;
+
+import java.util.OptionalLong;
+
+/*
+ * 사용자별 샘플링 강도 조절
+ * - 전역 분석 대기열 깊이(reaper 가 갱신하는 screenshot.queue.depth)로 부하 정도(0~1)를 구함
+ *   대기열이 밀리면 → SSIM 기준/해밍거리를 느슨하게 해서 더 많은 프레임을 기존 이미지로 묶고(덜 샘플링), 업로드 간격 힌트를 늘림
+ *   한가하면   → 기준을 엄격하게 해서 작은 화면 변화도 새 이미지로 저장 (더 샘플링)
+ * - 사용자별 최근 중복 비율(EWMA)이 높으면 같은 화면에 머물러 있는 것이므로 업로드 간격 힌트만 더 늘림
+ *   (중복 비율은 조절된 기준으로 판정한 결과라 기준에 되먹이면 느슨해진 기준이 중복 비율을 올려 계속 느슨하게 유지됨)
+ * - sampling.control.enabled=false 면 조절 전 상수 그대로
+ * - 대기열이 busy-depth 이상일 때 힌트보다 너무 빨리 올라온 업로드는 거절 (클라이언트 throttle)
+ * 상태는 인스턴스 로컬 (Caffeine), 여러 인스턴스면 인스턴스마다 따로 조절되지만 대기열 깊이는 Redis 기준이라 같은 방향으로 움직임
+ */
+@Service
+public class SamplingRateController {
+
+    // 조절 전(상수 시절) 기준 - sampling.control.enabled=false 일 때 사용
+    private static final double LEGACY_SSIM_THRESHOLD = 0.95;
+    private static final int LEGACY_MAX_DISTANCE = 6;
+    private static final double LEGACY_MIN_HASH_SIMILARITY = 0.7;
+
+    private final SamplingControlProperties props;
+    private final ScreenshotQueueReaper queueReaper;
+
+    // 로그인 ID(Users.userId) → 최근 중복 비율 + 마지막 업로드 시각
+    private final Cache<String, UserRate> rates;
+
+    public SamplingRateController(
+            SamplingControlProperties props,
+            ScreenshotQueueReaper queueReaper,
+            MeterRegistry meterRegistry) {
+        this.props = props;
+        this.queueReaper = queueReaper;
+        this.rates = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterAccess(props.getStateTtl())
+                .build();
+
+        Gauge.builder("screenshot.sampling.load", this, SamplingRateController::load)
+                .description("샘플링 조절에 쓰는 부하 정도 (0 = idle, 1 = busy)")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 지금 이 사용자에게 적용할 샘플링 기준 + 업로드 간격 힌트
+     * @param userId 로그인 ID (Users.userId)
+     */
+    public SamplingParams paramsFor(String userId) {
+        SamplingControlProperties.Level idle = props.getIdle();
+        SamplingControlProperties.Level busy = props.getBusy();
+        if (!props.isEnabled()) {
+            return new SamplingParams(LEGACY_SSIM_THRESHOLD, LEGACY_MAX_DISTANCE, LEGACY_MIN_HASH_SIMILARITY,
+                    idle.getUploadInterval().toMillis(), 0.0, 0.0);
+        }
+        double load = load();
+        double hitRate = hitRate(userId);
+
+        // 기준은 대기열 부하로만 결정 → 한가하면 다시 엄격해짐
+        double ssim = lerp(idle.getSsimThreshold(), busy.getSsimThreshold(), load);
+        int maxDistance = (int) Math.round(lerp(idle.getMaxDistance(), busy.getMaxDistance(), load));
+        double minHashSimilarity = lerp(idle.getMinHashSimilarity(), busy.getMinHashSimilarity(), load);
+
+        double intervalMs = lerp(idle.getUploadInterval().toMillis(), busy.getUploadInterval().toMillis(), load)
+                * (1 + hitRate * props.getDuplicateBackoff());
+        long uploadIntervalMs = Math.min((long) intervalMs, props.getMaxUploadInterval().toMillis());
+
+        return new SamplingParams(ssim, maxDistance, minHashSimilarity, uploadIntervalMs, load, hitRate);
+    }
+
+    /**
+     * 업로드 접수 시 호출 - 마지막 업로드 시각 기록
+     * 대기열이 busy 이고 직전 업로드 이후 (힌트 간격 × throttle-tolerance) 가 지나지 않았으면 기다려야 할 시간(ms)을 돌려줌
+     * @return 거절할 때만 값이 있음 (Retry-After 용)
+     */
+    public OptionalLong admit(String userId) {
+        long now = System.currentTimeMillis();
+        UserRate rate = rates.get(userId, k -> new UserRate());
+        if (!props.isEnabled() || props.getThrottleTolerance() <= 0 || load() < 1.0) {
+            rate.arrived(now);
+            return OptionalLong.empty();
+        }
+
+        long minGap = (long) (paramsFor(userId).uploadIntervalMs() * props.getThrottleTolerance());
+        long wait = rate.tryArrive(now, minGap);
+        return wait > 0 ? OptionalLong.of(wait) : OptionalLong.empty();
+    }
+
+    /**
+     * dedup 결과 반영 - SSIM 재검증을 통과해서 기존 이미지와 같은 화면으로 판단됐으면 hit
+     */
+    public void recordDedup(String userId, boolean duplicate) {
+        rates.get(userId, k -> new UserRate()).record(duplicate ? 1.0 : 0.0, props.getHitRateAlpha());
+    }
+
+    // 0 (idle-depth 이하) ~ 1 (busy-depth 이상)
+    private double load() {
+        if (!props.isEnabled())
+            return 0.0;
+        long idleDepth = props.getIdleDepth();
+        long busyDepth = Math.max(idleDepth + 1, props.getBusyDepth());
+        double t = (double) (queueReaper.queueDepth() - idleDepth) / (busyDepth - idleDepth);
+        return Math.max(0.0, Math.min(1.0, t));
+    }
+
+    private double hitRate(String userId) {
+        UserRate rate = rates.getIfPresent(userId);
+        return rate == null ? 0.0 : rate.hitRate();
+    }
+
+    private static double lerp(double from, double to, double t) {
+        return from + (to - from) * t;
+    }
+
+    /**
+     * @param ssimThreshold 이 값 이상이면 기존 이미지 재사용
+     * @param maxDistance 최근 해시 후보 탐색 최대 해밍거리
+     * @param minHashSimilarity 후보 해시 유사도 하한
+     * @param uploadIntervalMs 클라이언트에게 돌려줄 다음 업로드 간격 힌트
+     * @param load 부하 정도 (0~1)
+     * @param hitRate 이 사용자의 최근 중복 비율 (0~1)
+     */
+    public record SamplingParams(double ssimThreshold, int maxDistance, double minHashSimilarity,
+            long uploadIntervalMs, double load, double hitRate) {
+    }
+
+    private static final class UserRate {
+        private double hitRate;
+        private long lastArrivalAt;
+
+        synchronized double hitRate() {
+            return hitRate;
+        }
+
+        synchronized void record(double sample, double alpha) {
+            hitRate += alpha * (sample - hitRate);
+        }
+
+        synchronized void arrived(long now) {
+            lastArrivalAt = now;
+        }
+
+        // 허용이면 0 (시각 갱신), 거절이면 남은 대기 시간
+        synchronized long tryArrive(long now, long minGap) {
+            long wait = lastArrivalAt + minGap - now;
+            if (lastArrivalAt > 0 && wait > 0)
+                return wait;
+            lastArrivalAt = now;
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.mindtrack.Service;
+
+import com.example.mindtrack.Config.CoalesceProperties;
+import com.example.mindtrack.Util.RedisScripts;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/*
+ * 비슷한 프레임 묶기 (sampling.coalesce.*)
+ * - 새 이미지는 save_new_image.lua 에서 바로 대기열에 넣지 않고 coalesce:due 에 마감 시각과 함께 올려 둠 (상태 COALESCING)
+ * - 그 사이 들어온 비슷한 프레임은 AdaptiveSamplingService 가 원본만 덮어쓰고 touch() 로 마감을 미룸
+ *   (마지막 프레임 + window, 단 첫 프레임 + maxLatency 를 넘기지 않음)
+ * - flush() 가 마감이 지난 항목을 분석 대기열에 넣음 → 한 화면에 머무는 동안 분석 요청은 최신 프레임 한 번
+ * - 묶인 프레임 수는 screenshot:merged:{userId}:{imageId} 에 남기고 /analysis/claim 응답에 같이 전달
+ */
+@Component
+@Slf4j
+public class ScreenshotCoalescer {
+
+    static final String KEY_DUE = "coalesce:due";
+    static final String KEY_FIRST = "coalesce:first";
+
+    private static final DefaultRedisScript<List> TOUCH_SCRIPT =
+            RedisScripts.load(List.class, "redis/coalesce.lua", "redis/coalesce_touch.lua");
+    private static final DefaultRedisScript<Long> FLUSH_SCRIPT =
+            RedisScripts.load(Long.class, "redis/screenshot_queue.lua", "redis/flush_coalesced.lua");
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ScreenshotQueueService queueService;
+    private final CoalesceProperties props;
+
+    private final Counter flushedCounter;
+    private final Counter mergedCounter;
+
+    public ScreenshotCoalescer(
+            RedisTemplate<String, String> redisTemplate,
+            ScreenshotQueueService queueService,
+            CoalesceProperties props,
+            MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.queueService = queueService;
+        this.props = props;
+        this.flushedCounter = Counter.builder("screenshot.coalesce.flushed")
+                .description("묶기 window 가 끝나 분석 대기열에 넣은 이미지 수")
+                .register(meterRegistry);
+        this.mergedCounter = Counter.builder("screenshot.coalesce.merged")
+                .description("기존 이미지에 덮어써서 묶인 프레임 수")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return props.isEnabled();
+    }
+
+    long windowMillis() {
+        return props.isEnabled() ? props.getWindow().toMillis() : 0;
+    }
+
+    long maxLatencyMillis() {
+        return props.getMaxLatency().toMillis();
+    }
+
+    String keyMerged(Long userId, Long imageId) {
+        return "screenshot:merged:" + userId + ":" + imageId;
+    }
+
+    /**
+     * 비슷한 프레임이 기존 이미지 원본을 덮어쓴 뒤 호출
+     * @return 지금까지 이 이미지에 묶인 프레임 수
+     */
+    @SuppressWarnings("unchecked")
+    public long touch(Long userId, Long imageId) {
+        List<Object> result = redisTemplate.execute(TOUCH_SCRIPT,
+                List.of(KEY_DUE, KEY_FIRST, keyMerged(userId, imageId)),
+                userId + ":" + imageId,
+                String.valueOf(System.currentTimeMillis()),
+                String.valueOf(windowMillis()),
+                String.valueOf(maxLatencyMillis()),
+                String.valueOf(ScreenshotQueueService.statusTtl().toSeconds()));
+        mergedCounter.increment();
+        return (result == null || result.size() < 2) ? 0 : (Long) result.get(1);
+    }
+
+    // 마감이 지난 묶음을 대기열로 (묶기를 끈 뒤에도 남은 항목은 계속 내보냄)
+    @Scheduled(fixedDelayString = "${sampling.coalesce.flush-interval:1s}")
+    public void flush() {
+        try {
+            Long flushed = redisTemplate.execute(FLUSH_SCRIPT,
+                    List.of(KEY_DUE, KEY_FIRST, ScreenshotQueueService.KEY_QUEUE_USERS),
+                    String.valueOf(System.currentTimeMillis()),
+                    String.valueOf(props.getFlushBatch()),
+                    queueService.backendName(),
+                    queueService.streamKey(),
+                    String.valueOf(queueService.inFlightPerUser()),
+                    String.valueOf(ScreenshotQueueService.statusTtl().toSeconds()),
+                    ScreenshotQueueService.PREFIX_PENDING,
+                    ScreenshotQueueService.PREFIX_INFLIGHT,
+                    ScreenshotQueueService.PREFIX_OVERFLOW,
+                    ScreenshotQueueService.PREFIX_ENTRIES,
+                    ScreenshotQueueService.PREFIX_STATUS);
+            if (flushed != null && flushed > 0) {
+                flushedCounter.increment(flushed);
+                log.debug("[Coalesce] 대기열로 보낸 이미지 {}개", flushed);
+            }
+        } catch (Exception e) {
+            log.warn("[Coalesce] flush 실패 : {}", e.getMessage());
+        }
+    }
+}
@@ -1,12 +1,27 @@
 package com.example.mindtrack.Service;
 
+import com.example.mindtrack.Config.NearCacheProperties;
+import com.example.mindtrack.DTO.ClaimedImage;
+import com.example.mindtrack.Enum.NearCacheRegion;
+import com.example.mindtrack.Util.HammingIndex;
+import com.example.mindtrack.Util.ImageHash;
+import com.example.mindtrack.Util.RedisScripts;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.time.Duration;
 
 /*
@@ -18,256 +33,541 @@ import java.time.Duration;
 @Service
 @Slf4j
 @RequiredArgsConstructor
-public class ScreenshotImageCacheService {
+public class ScreenshotImageCacheService implements InitializingBean {
 
     private final RedisTemplate<String, String> redisTemplate;
     private final RedisTemplate<String, byte[]> redisBytesTemplate;
     private final SimilarityCheckService similarityCheckService;
+    private final ScreenshotQueueService screenshotQueueService;
+    private final ScreenshotCoalescer screenshotCoalescer;
+    private final NearCacheInvalidator nearCacheInvalidator;
+    private final NearCacheProperties nearCacheProperties;
 
-    // 썸네일/원본/최근목록에 TTL/최대길이 상수 사용
+    // 밝기 평면/원본/최근목록에 TTL/최대길이 상수 사용
     // 기존에 썸네일만 redis 로 저장하고 있던걸 원본까지 저장하는걸로 수정(fastpai 에서 ocr 및 분석하려면 resize 된 이미지가
     // 아니라 원본 이미지가 필요함)
-    private static final Duration TTL_THUMB = Duration.ofHours(1);
+    private static final Duration TTL_PLANE = Duration.ofHours(1);
     private static final Duration TTL_ORIG = Duration.ofHours(1);
     private static final Duration TTL_RECENT = Duration.ofHours(12);
-    private static final int MAX_RECENT = 50;
 
-    private static final double threshold = 0.7;
+    // 최근 해시 보관 개수 - 로컬 다중 인덱스로 탐색하므로 선형 탐색 시절(50개)보다 크게 잡을 수 있음
+    @Value("${sampling.recent.max-size:2000}")
+    private int maxRecent;
+
+    // SSIM 비교용 밝기 평면 로컬 near-cache 최대 용량 (128x128 평면 = 16KB)
+    private static final long PLANE_NEAR_CACHE_MAX_BYTES = 64L * 1024 * 1024;
+    // 상태 near-cache 무효화 횟수 stripe 수
+    private static final int STATUS_STRIPES = 64;
+
+    // Redis 키 → 밝기 평면, 직전 프레임 평면을 Redis 왕복 없이 바로 꺼내기 위한 로컬 캐시
+    private final Cache<String, byte[]> planeNearCache = Caffeine.newBuilder()
+            .maximumWeight(PLANE_NEAR_CACHE_MAX_BYTES)
+            .weigher((String key, byte[] plane) -> plane.length)
+            .expireAfterWrite(TTL_PLANE)
+            .build();
+
+    // 최근 해시 목록 Lua 스크립트 (공통 함수 recent_hashes.lua / screenshot_queue.lua 를 앞에 붙여서 로드)
+    // 신규 이미지 저장 (ID 발급 + 최근 목록 + 평면 + 원본 + 분석 대기열) 을 한 번에 처리
+    private static final DefaultRedisScript<List> SAVE_NEW_IMAGE_SCRIPT = RedisScripts.load(List.class,
+            "redis/recent_hashes.lua", "redis/screenshot_queue.lua", "redis/coalesce.lua", "redis/save_new_image.lua");
+    // 최근 목록 추가 (중복 제거 + 추가 + 길이 제한 + 밀려난 평면 삭제)
+    private static final DefaultRedisScript<List> PUT_RECENT_HASH_SCRIPT =
+            RedisScripts.load(List.class, "redis/recent_hashes.lua", "redis/put_recent_hash.lua");
+    // 로컬 인덱스 재구성용 전체 조회 (버전 + 목록)
+    private static final DefaultRedisScript<List> RECENT_SNAPSHOT_SCRIPT =
+            RedisScripts.load(List.class, "redis/recent_hashes_snapshot.lua");
+
+    // 사용자별 최근 해시 인덱스 (Redis 최근 목록의 로컬 사본)
+    // 버전 키(INCR)로 Redis 와 같은 상태인지 확인하고, 다르면 목록을 한 번 읽어서 다시 만든다
+    // 다른 인스턴스가 목록을 바꾸면 pub/sub 메시지로 버리고, 메시지를 놓쳤을 때를 대비해 near-cache.recent-verify-after 마다 버전 키 확인
+    // 무게 = 인덱스에 든 해시 수 + 1 (해시 하나에 약 1~1.5KB) → near-cache.recent.max-weight 로 전체 해시 수를 제한
+    // 인덱스가 커지면 같은 값을 다시 넣어(replace) 무게를 갱신
+    private Cache<Long, RecentIndex> recentIndexes;
+
+    // 상태 키 → 분석 상태 (keyspace notification 을 받을 때만 사용, 없으면 null)
+    // 상태가 없는 키는 "" 로 저장
+    private Cache<String, String> statusNearCache;
+    // 상태 키 무효화 횟수 (키 해시로 나눈 stripe) - GET 하는 동안 무효화가 오면 읽은 값을 캐시하지 않음
+    private final AtomicLongArray statusInvalidations = new AtomicLongArray(STATUS_STRIPES);
+
+    @Override
+    public void afterPropertiesSet() {
+        recentIndexes = Caffeine.newBuilder()
+                .maximumWeight(nearCacheProperties.getRecent().getMaxWeight())
+                .weigher((Long userId, RecentIndex idx) -> idx.index.size() + 1)
+                .expireAfterAccess(TTL_RECENT)
+                .build();
+        nearCacheInvalidator.register(NearCacheRegion.RECENT, this::onRemoteRecentChange);
+        nearCacheInvalidator.register(NearCacheRegion.PLANE, planeNearCache::invalidate);
+        if (nearCacheInvalidator.isStatusEventsActive()) {
+            NearCacheProperties.Status status = nearCacheProperties.getStatus();
+            statusNearCache = Caffeine.newBuilder()
+                    .maximumSize(status.getMaxSize())
+                    .expireAfterWrite(status.getTtl())
+                    .build();
+            nearCacheInvalidator.register(NearCacheRegion.STATUS, this::onStatusChange);
+        }
+    }
+
+    // "userId|version" - 로컬 인덱스가 그 버전보다 오래됐으면 버림 (다음 조회 때 재구성)
+    private void onRemoteRecentChange(String key) {
+        int sep = key.indexOf('|');
+        if (sep < 0)
+            return;
+        try {
+            Long userId = Long.parseLong(key.substring(0, sep));
+            long version = Long.parseLong(key.substring(sep + 1));
+            RecentIndex idx = recentIndexes.getIfPresent(userId);
+            if (idx == null)
+                return;
+            synchronized (idx) {
+                if (idx.version >= version)
+                    return;
+            }
+            recentIndexes.invalidate(userId);
+        } catch (NumberFormatException e) {
+            log.debug("[NearCache] 최근 목록 무효화 메시지 형식 오류 : {}", key);
+        }
+    }
+
+    // 썸네일(JPEG) 대신 SSIM 비교에 바로 쓰는 128x128 밝기 평면 저장
+    private String keyPlane(Long userId, ImageHash hash) {
+        return keyPlanePrefix(userId) + hash.toHex();
+    }
+
+    private String keyPlanePrefix(Long userId) {
+        return "user:" + userId + ":plane:";
+    }
 
-    private String keyThumb(Long userId, long hash) {
-        return "user:" + userId + ":thumb:" + hash;
+    // 최근 해시: ZSET(해시 hex → 추가 순서) + HASH(해시 hex → imageId)
+    private String keyRecentHashes(Long userId) {
+        return "user:" + userId + ":recentHashes";
     }
 
-    private String keyRecentList(Long userId) {
-        return "user:" + userId + ":recentImageHashes";
+    private String keyRecentImageIds(Long userId) {
+        return "user:" + userId + ":recentHashes:imageIds";
+    }
+
+    private String keyRecentVersion(Long userId) {
+        return "user:" + userId + ":recentHashes:version";
     }
 
     private String keyOriginal(Long userId, Long imageId) {
         return "user:" + userId + ":img:" + imageId;
     } // 원본 키
 
-    private String keyPendingQueue(Long userId) {
-        return "pending:" + userId;
+    private String keyOriginalContentType(Long userId, Long imageId) {
+        return keyOriginal(userId, imageId) + ":contentType";
+    } // 원본 Content-Type 키 (FastAPI 가 원본 바이트 디코딩 시 참고)
+
+    private String keyImageSeq(Long userId) {
+        return "user:" + userId + ":imageSeq";
     }
 
-    private String keyProcessingQueue(Long userId) {
-        return "processing:" + userId;
+    private String keyStatusPrefix(Long userId) {
+        return "screenshot:status:" + userId + ":";
     }
 
     // Redis에 원자적으로 증가시키는 시퀀스로 새 이미지 ID 생성
     public Long generateNewImageId(Long userId) {
-        String seqKey = "user:" + userId + ":imageSeq";
         // Redis INCR 사용 → 없으면 1부터 시작
-        return redisTemplate.opsForValue().increment(seqKey);
+        return redisTemplate.opsForValue().increment(keyImageSeq(userId));
+    }
+
+    /**
+     * 신규 이미지 저장을 Lua 스크립트 한 번으로 처리 (Redis 왕복 1회, 원자적)
+     * ID 발급 → 최근 목록(중복 제거/길이 제한/버전 증가) → 밝기 평면 → 원본 + Content-Type → 분석 대기열(또는 묶기 대기) + 상태
+     * @return 새 이미지 ID
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public Long saveNewImage(Long userId, ImageHash hash, byte[] luminancePlane, byte[] originalBytes,
+            String contentType) {
+        List<String> keys = new ArrayList<>(List.of(
+                keyImageSeq(userId),
+                keyRecentHashes(userId),
+                keyRecentImageIds(userId),
+                keyRecentVersion(userId),
+                ScreenshotCoalescer.KEY_DUE,
+                ScreenshotCoalescer.KEY_FIRST));
+        keys.addAll(screenshotQueueService.queueKeys(userId));
+
+        // 인자는 모두 byte[] 로 넘김 (평면/원본 바이트와 문자열 인자를 한 직렬화기로 처리)
+        List<Object> result = (List<Object>) redisBytesTemplate.execute(
+                SAVE_NEW_IMAGE_SCRIPT,
+                RedisSerializer.byteArray(),
+                (RedisSerializer) RedisSerializer.string(),
+                keys,
+                utf8("user:" + userId),
+                utf8(keyStatusPrefix(userId)),
+                utf8(hash.toHex()),
+                luminancePlane == null ? new byte[0] : luminancePlane,
+                originalBytes,
+                utf8(contentType == null ? "" : contentType),
+                utf8(String.valueOf(maxRecent)),
+                utf8(String.valueOf(TTL_PLANE.toSeconds())),
+                utf8(String.valueOf(TTL_ORIG.toSeconds())),
+                utf8(String.valueOf(TTL_RECENT.toSeconds())),
+                utf8(screenshotQueueService.backendName()),
+                utf8(String.valueOf(userId)),
+                utf8(String.valueOf(screenshotQueueService.inFlightPerUser())),
+                utf8(String.valueOf(screenshotCoalescer.windowMillis())),
+                utf8(String.valueOf(screenshotCoalescer.maxLatencyMillis())),
+                utf8(String.valueOf(System.currentTimeMillis())),
+                utf8(nearCacheInvalidator.channel()),
+                utf8(recentMessagePrefix(userId)));
+
+        if (result == null || result.size() < 2) {
+            throw new IllegalStateException("Redis save script returned no result for userId=" + userId);
+        }
+        Long imageId = (Long) result.get(0);
+        long version = (Long) result.get(1);
+        afterRecentPut(userId, imageId, hash, luminancePlane, version, result.subList(2, result.size()));
+        return imageId;
+    }
+
+    // 스크립트가 Redis 에 쓴 내용을 로컬 캐시에도 반영 (평면 near-cache + 해밍 인덱스)
+    private void afterRecentPut(Long userId, Long imageId, ImageHash hash, byte[] luminancePlane, long version,
+            List<Object> evictedHex) {
+        if (luminancePlane != null) {
+            planeNearCache.put(keyPlane(userId, hash), luminancePlane);
+        }
+        for (Object hex : evictedHex) {
+            planeNearCache.invalidate(keyPlanePrefix(userId) + hex);
+        }
+        applyToRecentIndex(userId, imageId, hash, version);
+    }
+
+    private String recentMessagePrefix(Long userId) {
+        return nearCacheInvalidator.messagePrefix(NearCacheRegion.RECENT) + userId + "|";
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
     }
 
     // 원본 이미지 바이트 Redis에 TTL로 보관/조회/삭제
-    public void cacheOriginalImage(Long userId, Long imageId, byte[] originalBytes) {
+    // 클라이언트가 보낸 인코딩 바이트를 그대로 저장하고, 포맷은 Content-Type 키로 함께 남김
+    public void cacheOriginalImage(Long userId, Long imageId, byte[] originalBytes, String contentType) {
         redisBytesTemplate.opsForValue().set(
                 keyOriginal(userId, imageId),
                 originalBytes,
                 TTL_ORIG);
+        if (contentType != null) {
+            redisTemplate.opsForValue().set(keyOriginalContentType(userId, imageId), contentType, TTL_ORIG);
+        }
     }
 
-    // 썸네일까지 함께 저장하는 오버로드
-    public void cacheRecentImageHash(Long userId, Long imageId, long hash, byte[] pngThumbBytes) {
-        cacheRecentImageHashInternal(userId, imageId, hash, Optional.ofNullable(pngThumbBytes));
-    }
-
-    public void cacheThumbnail(Long userId, Long hash, byte[] thumbBytes) {
-        redisBytesTemplate.opsForValue().set(keyThumb(userId, hash), thumbBytes, TTL_THUMB);
+    // 밝기 평면까지 함께 저장하는 오버로드
+    public void cacheRecentImageHash(Long userId, Long imageId, ImageHash hash, byte[] luminancePlane) {
+        cacheRecentImageHashInternal(userId, imageId, hash, Optional.ofNullable(luminancePlane));
     }
 
     public Optional<byte[]> getOriginalImage(Long userId, Long imageId) {
         return Optional.ofNullable(redisBytesTemplate.opsForValue().get(keyOriginal(userId, imageId)));
     }
 
-    public Optional<byte[]> getImageThumbByHash(Long userId, long hash) {
-        return Optional.ofNullable(redisBytesTemplate.opsForValue().get(keyThumb(userId, hash)));
+    public Optional<String> getOriginalContentType(Long userId, Long imageId) {
+        return Optional.ofNullable(redisTemplate.opsForValue().get(keyOriginalContentType(userId, imageId)));
+    }
+
+    // 로컬 near-cache → Redis 순으로 조회, Redis 에서 가져온 평면은 near-cache 에 채워 둠
+    public Optional<byte[]> getLuminancePlane(Long userId, ImageHash hash) {
+        String key = keyPlane(userId, hash);
+        byte[] plane = planeNearCache.getIfPresent(key);
+        if (plane == null) {
+            plane = redisBytesTemplate.opsForValue().get(key);
+            if (plane != null)
+                planeNearCache.put(key, plane);
+        }
+        return Optional.ofNullable(plane);
     }
 
     // ------------------------
-    // 최근 이미지 리스트 관리 (중복 제거 + 최대 50개)
+    // 최근 이미지 목록 관리 (중복 제거 + 최대 maxRecent 개)
     // ------------------------
     // 기존 시그니처도 유지
-    public void cacheRecentImageHash(Long userId, Long imageId, long hash) {
+    public void cacheRecentImageHash(Long userId, Long imageId, ImageHash hash) {
         cacheRecentImageHashInternal(userId, imageId, hash, Optional.empty());
     }
 
-    // 썸네일 저장 시 TTL 부여 추가
-    public void cacheImageThumbByHash(Long userId, long hash, byte[] pngThumbBytes) {
-        redisBytesTemplate.opsForValue().set(
-                keyThumb(userId, hash),
-                pngThumbBytes,
-                TTL_THUMB);
+    // 밝기 평면 저장 시 TTL 부여 + near-cache 에도 저장
+    public void cacheLuminancePlane(Long userId, ImageHash hash, byte[] luminancePlane) {
+        String key = keyPlane(userId, hash);
+        redisBytesTemplate.opsForValue().set(key, luminancePlane, TTL_PLANE);
+        planeNearCache.put(key, luminancePlane);
     }
 
-    public void deleteImageThumbByHash(Long userId, long hash) {
-        redisBytesTemplate.delete(keyThumb(userId, hash));
+    public void deleteLuminancePlane(Long userId, ImageHash hash) {
+        String key = keyPlane(userId, hash);
+        redisBytesTemplate.delete(key);
+        planeNearCache.invalidate(key);
+        nearCacheInvalidator.publish(NearCacheRegion.PLANE, key);
     }
 
     // 유사도 측정 시 특정 이미지가 현재 워커에서 처리 중인지"를 Redis에서 확인
+    // 상태 near-cache 가 켜져 있으면 로컬 값 사용 (상태 키가 바뀌면 keyspace notification 으로 버림)
     public boolean isProcessing(Long userId, Long imageId) {
         String key = "screenshot:status:" + userId + ":" + imageId;
-        String status = redisTemplate.opsForValue().get(key);
+        String status;
+        if (statusNearCache != null) {
+            status = statusNearCache.getIfPresent(key);
+            if (status == null) {
+                status = loadStatus(key);
+            }
+        } else {
+            status = redisTemplate.opsForValue().get(key);
+        }
         return "PROCESSING".equals(status);
     }
 
+    /*
+     * Redis 에서 읽고, 읽는 동안 같은 stripe 에 무효화가 없었을 때만 캐시
+     * cache.get(key, loader) 는 GET 이 끝나기 전에 도착한 무효화를 놓치고 옛 값을 넣을 수 있음
+     * 확인과 저장을 compute 안에서 하고 무효화도 같은 키를 지우므로(같은 bin 락) 확인 뒤 저장 전에 끼어들 수 없음
+     */
+    private String loadStatus(String key) {
+        int stripe = statusStripe(key);
+        long seen = statusInvalidations.get(stripe);
+        String loaded = redisTemplate.opsForValue().get(key);
+        String value = loaded == null ? "" : loaded;
+        statusNearCache.asMap().compute(key, (k, current) ->
+                statusInvalidations.get(stripe) == seen ? value : current);
+        return value;
+    }
+
+    // keyspace notification - 횟수를 먼저 올리고 지움 (읽는 중인 loadStatus 가 옛 값을 넣지 않도록)
+    private void onStatusChange(String key) {
+        statusInvalidations.incrementAndGet(statusStripe(key));
+        statusNearCache.invalidate(key);
+    }
+
+    private static int statusStripe(String key) {
+        return Math.floorMod(key.hashCode(), STATUS_STRIPES);
+    }
+
+    // 중복 제거 + 추가 + 길이 제한 + 밀려난 평면 삭제를 Lua 스크립트 한 번으로 처리 (목록 길이와 무관하게 왕복 1회)
+    @SuppressWarnings({ "unchecked", "rawtypes" })
     private void cacheRecentImageHashInternal(
-            Long userId, Long imageId, long hash, Optional<byte[]> thumbOpt) {
-        final String listKey = keyRecentList(userId);
-        final String newEntry = imageId + ":" + hash;
-
-        // 1) 동일 해시 제거(중복 방지)
-        List<String> cached = redisTemplate.opsForList().range(listKey, 0, -1);
-        if (cached != null) { // NPE 방지 (range 결과 null일 수 있음!)
-            for (String e : cached) {
-                String[] p = e.split(":");
-                if (p.length == 2 && p[1].equals(String.valueOf(hash))) {
-                    redisTemplate.opsForList().remove(listKey, 0, e);
-                    break;
+            Long userId, Long imageId, ImageHash hash, Optional<byte[]> planeOpt) {
+        List<Object> result = (List<Object>) redisBytesTemplate.execute(
+                PUT_RECENT_HASH_SCRIPT,
+                RedisSerializer.byteArray(),
+                (RedisSerializer) RedisSerializer.string(),
+                List.of(keyRecentHashes(userId), keyRecentImageIds(userId), keyRecentVersion(userId)),
+                utf8(keyPlanePrefix(userId)),
+                utf8(hash.toHex()),
+                utf8(String.valueOf(imageId)),
+                planeOpt.orElse(new byte[0]),
+                utf8(String.valueOf(maxRecent)),
+                utf8(String.valueOf(TTL_PLANE.toSeconds())),
+                utf8(String.valueOf(TTL_RECENT.toSeconds())),
+                utf8(nearCacheInvalidator.channel()),
+                utf8(recentMessagePrefix(userId)));
+
+        if (result == null || result.isEmpty()) {
+            throw new IllegalStateException("Redis recent hash script returned no result for userId=" + userId);
+        }
+        afterRecentPut(userId, imageId, hash, planeOpt.orElse(null), (Long) result.get(0),
+                result.subList(1, result.size()));
+    }
+
+    private void applyToRecentIndex(Long userId, Long imageId, ImageHash hash, long version) {
+        RecentIndex idx = recentIndexes.getIfPresent(userId);
+        if (idx == null)
+            return;
+        synchronized (idx) {
+            if (version == idx.version + 1) {
+                idx.index.put(imageId, hash);
+                idx.version = version;
+                // 아직 같은 인덱스가 들어 있을 때만 다시 넣어 무게 갱신 (그 사이 무효화됐으면 되살리지 않음)
+                recentIndexes.asMap().replace(userId, idx, idx);
+                return;
+            }
+        }
+        recentIndexes.invalidate(userId);
+    }
+
+    // 로컬 인덱스가 Redis 버전과 같으면 그대로 쓰고, 아니면 최근 목록 전체를 한 번 읽어서 재구성
+    // pub/sub 무효화를 받는 중이면 마지막 확인 후 recent-verify-after 동안은 버전 키도 읽지 않음 (Redis 왕복 0회)
+    @SuppressWarnings("unchecked")
+    private RecentIndex recentIndexFor(Long userId) {
+        long now = System.currentTimeMillis();
+        RecentIndex idx = recentIndexes.getIfPresent(userId);
+        if (idx != null && nearCacheInvalidator.isEnabled()) {
+            synchronized (idx) {
+                if (now - idx.verifiedAt < nearCacheProperties.getRecentVerifyAfter().toMillis())
+                    return idx;
+            }
+        }
+
+        String versionStr = redisTemplate.opsForValue().get(keyRecentVersion(userId));
+        long version = (versionStr == null ? 0 : Long.parseLong(versionStr));
+
+        if (idx != null) {
+            synchronized (idx) {
+                if (idx.version == version) {
+                    idx.verifiedAt = now;
+                    return idx;
                 }
             }
         }
 
-        // 2) 맨 앞에 추가
-        redisTemplate.opsForList().leftPush(listKey, newEntry);
-
-        // 최근 리스트 자체에도 TTL 적용
-        redisTemplate.expire(listKey, TTL_RECENT);
-
-        // 2-1) 썸네일 바이트도 함께 저장 (만료 없음-> TTL 적용으로 수정)
-        thumbOpt.ifPresent(bytes -> cacheImageThumbByHash(userId, hash, bytes));
-
-        // 3) 50개 초과분은 오른쪽에서 pop → 해당 해시의 썸네일도 함께 삭제
-        // 오토 언박싱(Pop 이나 리스트 비는 문제로 NullPointerException 발생 우려 ) -> 한번 Long 으로 받았다가 null
-        // 이면 0 으로 처리하는 방어로 수정
-        Long sizeObj = redisTemplate.opsForList().size(listKey);
-        long size = (sizeObj == null ? 0 : sizeObj);
-        while (size > MAX_RECENT) {
-            String removed = redisTemplate.opsForList().rightPop(listKey);
-            String[] p = removed.split(":");
-            if (p.length == 2) {
-                long removedHash = Long.parseLong(p[1]);
-                deleteImageThumbByHash(userId, removedHash);
+        // 버전과 목록을 스크립트 한 번으로 같은 시점에 읽음 (오래된 것부터 → 인덱스 삽입 순서가 같아짐)
+        List<Object> snapshot = redisTemplate.execute(RECENT_SNAPSHOT_SCRIPT,
+                List.of(keyRecentHashes(userId), keyRecentImageIds(userId), keyRecentVersion(userId)));
+        HammingIndex index = new HammingIndex(maxRecent);
+        long snapshotVersion = version;
+        if (snapshot != null && !snapshot.isEmpty()) {
+            snapshotVersion = (Long) snapshot.get(0);
+            for (int i = 1; i + 1 < snapshot.size(); i += 2) {
+                Candidate entry = parseRecentEntry((String) snapshot.get(i), (String) snapshot.get(i + 1));
+                if (entry != null)
+                    index.put(entry.imageId(), entry.hash());
             }
-            sizeObj = redisTemplate.opsForList().size(listKey);
-            size = (sizeObj == null ? 0 : sizeObj);
         }
+
+        RecentIndex rebuilt = new RecentIndex(index, snapshotVersion, now);
+        recentIndexes.put(userId, rebuilt);
+        return rebuilt;
     }
 
     // ------------------------
     // 유사도 체크
     // ------------------------
 
-    public Optional<Candidate> findMostSimilarFromCache(Long userId, long newHash, int maxDistance) {
-        String key = keyRecentList(userId);
-        List<String> cached = redisTemplate.opsForList().range(key, 0, -1);
-        if (cached == null || cached.isEmpty())
+    /**
+     * @param maxDistance 최대 해밍거리
+     * @param minSimilarity 해시 유사도 하한 (SamplingRateController 가 부하에 따라 조절)
+     */
+    public Optional<Candidate> findMostSimilarFromCache(Long userId, ImageHash newHash, int maxDistance,
+            double minSimilarity) {
+        RecentIndex idx = recentIndexFor(userId);
+
+        HammingIndex.Match match;
+        synchronized (idx) {
+            if (idx.index.size() == 0)
+                return Optional.empty();
+            // 해밍거리가 가장 가까운 항목 = similarity 가 가장 높은 항목
+            match = idx.index.nearest(newHash, maxDistance);
+        }
+        if (match == null)
             return Optional.empty();
 
-        Candidate best = null;
-        double maxSimilarity = 0;
-        int bestDist = Integer.MAX_VALUE;
-
-        for (String entry : cached) {
-            String[] parts = entry.split(":");
-            if (parts.length != 2)
-                continue;
-
-            Long imageId = Long.parseLong(parts[0]);
-            long cachedHash = Long.parseLong(parts[1]);
-
-            int dist = similarityCheckService.hammingDistance(newHash, cachedHash);
-            double similarity = similarityCheckService.similarity(newHash, cachedHash);
+        double similarity = similarityCheckService.similarity(newHash, match.hash());
+        if (similarity < minSimilarity)
+            return Optional.empty();
 
-            if (dist <= maxDistance && similarity >= threshold) {
-                if (similarity > maxSimilarity) {
-                    maxSimilarity = similarity;
-                    best = new Candidate(imageId, cachedHash);
-                    bestDist = dist; // ★ dist 기록
-                }
-            }
-        }
-        // 루프 밖으로 이동 - 이 전 코드는 루프안에서 출력해서 불필요하게 출력함.
-        /*
-         * if (best != null) {
-         * log.info("[최종 선택된 유사 이미지] imageId={}, 해밍 거리={}, 유사도={}", best.imageId,
-         * bestDist, maxSimilarity);
-         * } else {
-         * log.info("[유사 이미지 없음] 기준 거리 maxDistance={} 이하 항목 없음", maxDistance);
-         * }
-         */
-        return Optional.ofNullable(best);
+        return Optional.of(new Candidate(match.imageId(), match.hash()));
     }
 
     // ------------------------
-    // FastAPI으로 원자적 이동 & 동시성 보호
+    // 분석 대기열 (ScreenshotQueueService, sampling.queue.backend = list | stream)
     // ------------------------
+    // list 모드: FastAPI 가 분석을 시작할 때 pending → processing 원자적 이동
     public Optional<Long> movePendingToProcessing(Long userId) {
-        String pendingKey = keyPendingQueue(userId);
-        String processingKey = keyProcessingQueue(userId);
+        return screenshotQueueService.movePendingToProcessing(userId);
+    }
 
-        String imageIdStr = redisTemplate.opsForList().rightPopAndLeftPush(pendingKey, processingKey);
-        if (imageIdStr == null)
-            return Optional.empty();
+    /**
+     * 비슷한 프레임이 기존 이미지 원본을 덮어쓴 뒤 호출 - 묶인 프레임 수 증가 + 묶기 window 안이면 마감 연장
+     * @return 지금까지 묶인 프레임 수
+     */
+    public long recordSupersededFrame(Long userId, Long imageId) {
+        return screenshotCoalescer.touch(userId, imageId);
+    }
 
-        return Optional.of(Long.parseLong(imageIdStr));
+    /**
+     * AI 워커용 배치 가져오기: 여러 사용자에 걸쳐 최대 max 개를 한 번에 가져오고 원본을 같이 돌려줌
+     * 가져오기 스크립트 1회 + (includeBytes 면) 원본 MGET 1회 + Content-Type MGET 1회 + 묶인 프레임 수 MGET 1회
+     * @param includeBytes false 면 원본 바이트 대신 Redis 키만 (워커가 Redis 에서 직접 읽음)
+     */
+    public List<ClaimedImage> claimBatch(String consumer, int max, boolean includeBytes) {
+        List<ScreenshotQueueService.QueuedImage> claimed = screenshotQueueService.claimBatch(consumer, max);
+        if (claimed.isEmpty())
+            return List.of();
+
+        List<String> originalKeys = new ArrayList<>(claimed.size());
+        List<String> contentTypeKeys = new ArrayList<>(claimed.size());
+        List<String> mergedKeys = new ArrayList<>(claimed.size());
+        for (ScreenshotQueueService.QueuedImage q : claimed) {
+            originalKeys.add(keyOriginal(q.userId(), q.imageId()));
+            contentTypeKeys.add(keyOriginalContentType(q.userId(), q.imageId()));
+            mergedKeys.add(screenshotCoalescer.keyMerged(q.userId(), q.imageId()));
+        }
+
+        List<byte[]> originals = includeBytes ? redisBytesTemplate.opsForValue().multiGet(originalKeys) : null;
+        List<String> contentTypes = redisTemplate.opsForValue().multiGet(contentTypeKeys);
+        List<String> merged = redisTemplate.opsForValue().multiGet(mergedKeys);
+
+        List<ClaimedImage> result = new ArrayList<>(claimed.size());
+        for (int i = 0; i < claimed.size(); i++) {
+            ScreenshotQueueService.QueuedImage q = claimed.get(i);
+            result.add(new ClaimedImage(
+                    q.userId(),
+                    q.imageId(),
+                    q.entryId(),
+                    originalKeys.get(i),
+                    contentTypes == null ? null : contentTypes.get(i),
+                    originals == null ? null : originals.get(i),
+                    (merged == null || merged.get(i) == null) ? 0 : Long.parseLong(merged.get(i))));
+        }
+        return result;
     }
 
+    // 분석 완료 → 대기열에서 제거 + 원본 정리
     public void removeProcessingImage(Long userId, Long imageId) {
-        redisTemplate.opsForList().remove(keyProcessingQueue(userId), 0, String.valueOf(imageId));
+        screenshotQueueService.ack(userId, imageId);
         redisBytesTemplate.delete(keyOriginal(userId, imageId));
+        redisTemplate.delete(keyOriginalContentType(userId, imageId));
     }
 
     // ------------------------
     // 로그아웃/정지 시 pending만 삭제 - 사용자가 로그아웃하거나 계정을 정지시킬 때 대기열만 정리
     // ------------------------
     public void clearPendingImages(Long userId) {
-        String pendingKey = keyPendingQueue(userId);
-        List<String> pendingList = redisTemplate.opsForList().range(pendingKey, 0, -1);
-
-        if (pendingList != null) {
-            for (String imageIdStr : pendingList) {
-                Long imageId = Long.parseLong(imageIdStr);
-                redisBytesTemplate.delete(keyOriginal(userId, imageId));
-            }
+        for (Long imageId : screenshotQueueService.clear(userId)) {
+            redisBytesTemplate.delete(keyOriginal(userId, imageId));
+            redisTemplate.delete(keyOriginalContentType(userId, imageId));
         }
-
-        redisTemplate.delete(pendingKey);
     }
 
-    // 새 imageId를 대기열에 넣음(LPUSH) -> 워커가 나중에 RPOP 으로 꺼내감(FIFO 유지)
+    // 새 imageId를 대기열에 넣음 -> list 는 워커가 RPOP 으로 가장 먼저 들어온 것부터 꺼내감(FIFO 유지)
     public void enqueueImage(Long userId, Long imageId) {
-        String pendingKey = keyPendingQueue(userId);
-        String statusKey = "screenshot:status:" + userId + ":" + imageId;
-
-        // 워커는 RPOP 으로 가장 먼저들어온(가장 왼쪽에 배치한 - left) 을 먼저 꺼내감
-        redisTemplate.opsForList().leftPush(pendingKey, String.valueOf(imageId));
-
-        redisTemplate.opsForValue().set(statusKey, "QUEUED");
-        redisTemplate.expire(statusKey, TTL_ORIG);
+        screenshotQueueService.enqueue(userId, imageId);
     }
 
-    // pending에 이미 imageId가 들어있는지 조회(range) 하고, 없으면 LPUSH로 추가.
+    // 대기열에 imageId 가 없을 때만 추가 (목록 전체 조회 없이 스크립트 안에서 확인)
     public void ensurePending(Long userId, Long imageId) {
-        String pendingKey = keyPendingQueue(userId);
-        List<String> pending = redisTemplate.opsForList().range(pendingKey, 0, -1);
-        String idStr = String.valueOf(imageId);
-        boolean contains = (pending != null && pending.contains(idStr));
-        if (!contains) {
-            redisTemplate.opsForList().leftPush(pendingKey, idStr);
-            // set status if absent
-            String statusKey = "screenshot:status:" + userId + ":" + imageId;
-            String existing = redisTemplate.opsForValue().get(statusKey);
-            if (existing == null) {
-                redisTemplate.opsForValue().set(statusKey, "QUEUED");
-                redisTemplate.expire(statusKey, TTL_ORIG);
-            }
+        screenshotQueueService.ensureQueued(userId, imageId);
+    }
+
+    // 최근 목록 항목 파싱 (형식이 다르면 null)
+    private Candidate parseRecentEntry(String hashHex, String imageId) {
+        if (hashHex == null || imageId == null)
+            return null;
+        try {
+            return new Candidate(Long.parseLong(imageId), ImageHash.fromHex(hashHex));
+        } catch (IllegalArgumentException e) {
+            return null;
         }
     }
 
-    public record Candidate(Long imageId, long hash) {
+    public record Candidate(Long imageId, ImageHash hash) {
+    }
+
+    // synchronized(idx) 구간은 메모리 인덱스 조회/추가만 함 (Redis 호출은 락 밖)
+    // → 가상 스레드에서 pinning 이 생겨도 마이크로초 단위라 캐리어 스레드를 오래 붙잡지 않음
+    private static final class RecentIndex {
+        private final HammingIndex index;
+        private long version;
+        // 마지막으로 Redis 버전 키와 맞춰 본 시각
+        private long verifiedAt;
+
+        private RecentIndex(HammingIndex index, long version, long verifiedAt) {
+            this.index = index;
+            this.version = version;
+            this.verifiedAt = verifiedAt;
+        }
     }
 
 }
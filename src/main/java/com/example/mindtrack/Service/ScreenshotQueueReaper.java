@@ -0,0 +1,176 @@
+package com.example.mindtrack.Service;
+
+import com.example.mindtrack.Config.ScreenshotQueueProperties;
+import com.example.mindtrack.Util.RedisScripts;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * 워커가 가져간 뒤 죽어서 완료(ACK)되지 않은 항목 정리
+ * - list   : processing:{userId} 에 visibility timeout 이상 남은 항목을 pending 의 다음 차례로 되돌리고 재시도 횟수 증가
+ * - stream : visibility timeout 을 넘긴 항목의 상태를 QUEUED 로 되돌림 (재배달은 claim 의 XAUTOCLAIM 이 담당)
+ * 두 방식 모두 maxAttempts 번 시간 초과되면 dead-letter 목록(screenshot:dead)으로 보내고 상태를 DEAD 로 바꾼다
+ * → 멈춘 항목의 상태가 PROCESSING 으로 남아 있으면 AdaptiveSamplingService 의 재분석 경로(isProcessing)가 막히므로 같이 되돌림
+ * 실행할 때마다 대기열 지표(screenshot.queue.*)를 갱신한다
+ * 사용자 목록은 SSCAN 으로 REAP_BATCH 명씩 나눠 스크립트를 여러 번 호출 (스크립트 한 번이 Redis 를 붙잡는 시간을 제한)
+ * → 지표는 한 바퀴를 다 돈 합계 (batch 사이에 바뀐 값이 섞일 수 있는 근사값)
+ * 여러 인스턴스에서 동시에 돌아도 Lua 스크립트 안에서 원자적으로 처리되므로 같은 항목을 두 번 되돌리지 않음
+ */
+@Component
+@Slf4j
+public class ScreenshotQueueReaper {
+
+    private static final DefaultRedisScript<List> REAP_LIST_SCRIPT =
+            RedisScripts.load(List.class, "redis/reap_list.lua");
+    private static final DefaultRedisScript<List> REAP_STREAM_SCRIPT =
+            RedisScripts.load(List.class, "redis/screenshot_queue.lua", "redis/reap_stream.lua");
+
+    // 스크립트 한 번에 확인할 시간 초과 항목 수 / SSCAN 사용자 수
+    private static final int REAP_BATCH = 500;
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ScreenshotQueueService queueService;
+    private final ScreenshotQueueProperties props;
+
+    private final AtomicLong depth = new AtomicLong();
+    private final AtomicLong inProgress = new AtomicLong();
+    private final AtomicLong oldestAgeMs = new AtomicLong();
+    private final AtomicLong deadLetterSize = new AtomicLong();
+    private final Counter requeuedCounter;
+    private final Counter deadLetteredCounter;
+
+    public ScreenshotQueueReaper(
+            RedisTemplate<String, String> redisTemplate,
+            ScreenshotQueueService queueService,
+            ScreenshotQueueProperties props,
+            MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.queueService = queueService;
+        this.props = props;
+
+        String backend = queueService.backendName();
+        Gauge.builder("screenshot.queue.depth", depth, AtomicLong::get)
+                .description("분석 대기 중인 항목 수")
+                .tag("backend", backend)
+                .register(meterRegistry);
+        Gauge.builder("screenshot.queue.in_progress", inProgress, AtomicLong::get)
+                .description("워커가 가져가서 처리 중인 항목 수")
+                .tag("backend", backend)
+                .register(meterRegistry);
+        Gauge.builder("screenshot.queue.oldest_age", oldestAgeMs, AtomicLong::get)
+                .description("가장 오래 처리 중인 항목의 경과 시간")
+                .baseUnit("milliseconds")
+                .tag("backend", backend)
+                .register(meterRegistry);
+        Gauge.builder("screenshot.queue.dead_letter", deadLetterSize, AtomicLong::get)
+                .description("dead-letter 목록 길이")
+                .tag("backend", backend)
+                .register(meterRegistry);
+        this.requeuedCounter = Counter.builder("screenshot.queue.requeued")
+                .description("visibility timeout 으로 다시 대기열에 돌린 항목 수")
+                .tag("backend", backend)
+                .register(meterRegistry);
+        this.deadLetteredCounter = Counter.builder("screenshot.queue.dead_lettered")
+                .description("재시도 한도를 넘겨 dead-letter 로 보낸 항목 수")
+                .tag("backend", backend)
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${sampling.queue.reaper-interval:30s}",
+            initialDelayString = "${sampling.queue.reaper-interval:30s}")
+    public void reap() {
+        try {
+            long now = System.currentTimeMillis();
+            // 첫 호출(cursor 0)이 시간 초과 처리 + 사용자와 무관한 지표, 이후 호출은 사용자 batch 의 대기/처리 중 개수만
+            List<Object> result = reapBatch(now, "0");
+            if (result == null || result.size() < 7) {
+                return;
+            }
+            long depthSum = (Long) result.get(2);
+            long inProgressSum = (Long) result.get(3);
+            String cursor = String.valueOf(result.get(6));
+            while (!"0".equals(cursor)) {
+                List<Object> next = reapBatch(now, cursor);
+                if (next == null || next.size() < 7) {
+                    return;
+                }
+                depthSum += (Long) next.get(2);
+                inProgressSum += (Long) next.get(3);
+                cursor = String.valueOf(next.get(6));
+            }
+
+            long requeued = (Long) result.get(0);
+            long dead = (Long) result.get(1);
+            depth.set(depthSum);
+            inProgress.set(inProgressSum);
+            long oldestAt = (Long) result.get(4);
+            oldestAgeMs.set(oldestAt > 0 ? Math.max(0, now - oldestAt) : 0);
+            deadLetterSize.set((Long) result.get(5));
+            requeuedCounter.increment(requeued);
+            deadLetteredCounter.increment(dead);
+
+            if (requeued > 0 || dead > 0) {
+                log.warn("[Queue] 시간 초과 항목 정리 backend={}, 재대기={}, dead-letter={}",
+                        queueService.backendName(), requeued, dead);
+            }
+        } catch (Exception e) {
+            log.warn("[Queue] reaper 실행 실패 : {}", e.getMessage());
+        }
+    }
+
+    // 마지막 reaper 실행 시점의 분석 대기 항목 수 (SamplingRateController 가 부하 판단에 사용)
+    public long queueDepth() {
+        return depth.get();
+    }
+
+    private List<Object> reapBatch(long now, String cursor) {
+        return queueService.isStream() ? reapStream(cursor) : reapList(now, cursor);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> reapList(long now, String cursor) {
+        return redisTemplate.execute(REAP_LIST_SCRIPT,
+                List.of(ScreenshotQueueService.KEY_QUEUE_USERS,
+                        ScreenshotQueueService.KEY_CLAIMED,
+                        ScreenshotQueueService.KEY_RETRIES,
+                        ScreenshotQueueService.KEY_DEAD_LETTER),
+                String.valueOf(now),
+                String.valueOf(props.getVisibilityTimeout().toMillis()),
+                String.valueOf(props.getMaxAttempts()),
+                String.valueOf(ScreenshotQueueService.statusTtl().toSeconds()),
+                String.valueOf(props.getDeadLetterMaxSize()),
+                cursor,
+                String.valueOf(REAP_BATCH),
+                ScreenshotQueueService.PREFIX_PENDING,
+                ScreenshotQueueService.PREFIX_PROCESSING,
+                ScreenshotQueueService.PREFIX_STATUS);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> reapStream(String cursor) {
+        return redisTemplate.execute(REAP_STREAM_SCRIPT,
+                List.of(props.getStream(),
+                        ScreenshotQueueService.KEY_QUEUE_USERS,
+                        ScreenshotQueueService.KEY_DEAD_LETTER),
+                props.getGroup(),
+                String.valueOf(props.getVisibilityTimeout().toMillis()),
+                String.valueOf(props.getMaxAttempts()),
+                String.valueOf(ScreenshotQueueService.statusTtl().toSeconds()),
+                String.valueOf(props.getDeadLetterMaxSize()),
+                String.valueOf(REAP_BATCH),
+                cursor,
+                ScreenshotQueueService.PREFIX_INFLIGHT,
+                ScreenshotQueueService.PREFIX_OVERFLOW,
+                ScreenshotQueueService.PREFIX_ENTRIES,
+                ScreenshotQueueService.PREFIX_STATUS);
+    }
+}
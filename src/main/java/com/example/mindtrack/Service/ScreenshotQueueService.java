@@ -0,0 +1,293 @@
+package com.example.mindtrack.Service;
+
+import com.example.mindtrack.Config.ScreenshotQueueProperties;
+import com.example.mindtrack.Enum.QueueBackend;
+import com.example.mindtrack.Util.RedisScripts;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/*
+ * 분석 대기열 (FastAPI 워커가 가져갈 imageId)
+ * - list   : 사용자별 pending:{userId} → RPOPLPUSH → processing:{userId} (기존 방식, 워커가 사용자 키를 돌아가며 확인)
+ * - stream : 전역 스트림 하나 + 컨슈머 그룹
+ *            XREADGROUP 으로 가져가고 XACK 로 완료, 멈춘 항목은 XAUTOCLAIM 으로 재배달
+ *            사용자별 동시 처리 개수를 넘는 항목은 사용자별 overflow 에서 기다렸다가 ACK 될 때 하나씩 스트림으로 올라감
+ * 모든 연산은 Lua 스크립트 한 번 (목록 전체를 읽는 LRANGE 없음)
+ * 여러 사용자를 한 번에 다루는 스크립트(claimBatch, reaper, coalesce flush)는 항목의 userId 로 사용자별 키를 스크립트 안에서 만듦
+ * → 키 이름은 여기 접두어(PREFIX_*)를 ARGV 로 넘겨서 한 곳에서만 정하고, KEYS 로 선언되지 않은 키를 건드리므로
+ *   단일 노드(또는 레플리카) Redis 전용 - Redis Cluster 에서는 CROSSSLOT/undeclared key 로 실패함
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ScreenshotQueueService implements InitializingBean {
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ScreenshotQueueProperties props;
+
+    private static final Duration TTL_STATUS = Duration.ofHours(1);
+
+    private static final DefaultRedisScript<Long> ENQUEUE_SCRIPT =
+            RedisScripts.load(Long.class, "redis/screenshot_queue.lua", "redis/enqueue_image.lua");
+    private static final DefaultRedisScript<List> CLAIM_SCRIPT =
+            RedisScripts.load(List.class, "redis/claim_stream.lua");
+    private static final DefaultRedisScript<Long> ACK_SCRIPT =
+            RedisScripts.load(Long.class, "redis/screenshot_queue.lua", "redis/ack_stream.lua");
+    private static final DefaultRedisScript<List> CLEAR_SCRIPT =
+            RedisScripts.load(List.class, "redis/clear_stream.lua");
+    private static final DefaultRedisScript<String> CLAIM_LIST_SCRIPT =
+            RedisScripts.load(String.class, "redis/claim_list.lua");
+    private static final DefaultRedisScript<Long> ACK_LIST_SCRIPT =
+            RedisScripts.load(Long.class, "redis/ack_list.lua");
+    private static final DefaultRedisScript<List> CLAIM_LIST_BATCH_SCRIPT =
+            RedisScripts.load(List.class, "redis/claim_list_batch.lua");
+
+    // 대기열에 항목이 있는 사용자 (reaper 가 사용자별 키를 찾을 때 사용)
+    static final String KEY_QUEUE_USERS = "screenshot:queue:users";
+    // list: 사용자별 processing 항목을 가져간 시각 ("userId:imageId" → ms)
+    static final String KEY_CLAIMED = "screenshot:claimed";
+    // list: 시간 초과 횟수 ("userId:imageId" → 횟수)
+    static final String KEY_RETRIES = "screenshot:retries";
+    // 재시도 한도를 넘긴 항목 ("userId:imageId")
+    static final String KEY_DEAD_LETTER = "screenshot:dead";
+    // list: claimBatch 가 다음에 사용자 목록을 이어서 볼 SSCAN cursor
+    static final String KEY_CLAIM_CURSOR = "screenshot:claim:cursor";
+
+    // 사용자별 키 접두어 (+ userId, 상태는 + "userId:imageId") - Lua 스크립트에도 ARGV 로 넘김
+    static final String PREFIX_PENDING = "pending:";
+    static final String PREFIX_PROCESSING = "processing:";
+    static final String PREFIX_STATUS = "screenshot:status:";
+    static final String PREFIX_INFLIGHT = "screenshot:inflight:";
+    static final String PREFIX_OVERFLOW = "screenshot:overflow:";
+    static final String PREFIX_ENTRIES = "screenshot:entries:";
+
+    private String keyPendingQueue(Long userId) {
+        return PREFIX_PENDING + userId;
+    }
+
+    private String keyProcessingQueue(Long userId) {
+        return PREFIX_PROCESSING + userId;
+    }
+
+    static Duration statusTtl() {
+        return TTL_STATUS;
+    }
+
+    private String keyStatus(Long userId, Long imageId) {
+        return PREFIX_STATUS + userId + ":" + imageId;
+    }
+
+    public boolean isStream() {
+        return props.getBackend() == QueueBackend.STREAM;
+    }
+
+    // Lua 스크립트에 넘기는 backend 이름 (screenshot_queue.lua)
+    String backendName() {
+        return isStream() ? "stream" : "list";
+    }
+
+    int inFlightPerUser() {
+        return props.getInFlightPerUser();
+    }
+
+    String streamKey() {
+        return props.getStream();
+    }
+
+    // screenshot_queue.lua 의 keys 순서와 같아야 함
+    List<String> queueKeys(Long userId) {
+        if (!isStream()) {
+            return List.of(keyPendingQueue(userId), KEY_QUEUE_USERS);
+        }
+        return List.of(
+                props.getStream(),
+                PREFIX_INFLIGHT + userId,
+                PREFIX_OVERFLOW + userId,
+                PREFIX_ENTRIES + userId,
+                KEY_QUEUE_USERS);
+    }
+
+    // stream 모드면 컨슈머 그룹이 없을 때 만들어 둠 (스트림도 같이 생성)
+    @Override
+    public void afterPropertiesSet() {
+        if (!isStream())
+            return;
+        try {
+            redisTemplate.execute((RedisCallback<Object>) connection -> {
+                connection.streamCommands().xGroupCreate(
+                        props.getStream().getBytes(StandardCharsets.UTF_8),
+                        props.getGroup(),
+                        ReadOffset.from("0"),
+                        true);
+                return null;
+            });
+            log.info("[Queue] 컨슈머 그룹 생성 stream={}, group={}", props.getStream(), props.getGroup());
+        } catch (Exception e) {
+            if (e.getMessage() != null && e.getMessage().contains("BUSYGROUP")) {
+                log.info("[Queue] 컨슈머 그룹 사용 stream={}, group={}", props.getStream(), props.getGroup());
+            } else {
+                log.warn("[Queue] 컨슈머 그룹 생성 실패 stream={} : {}", props.getStream(), e.getMessage());
+            }
+        }
+    }
+
+    // 새 imageId 를 대기열에 넣음 + 상태 QUEUED
+    public void enqueue(Long userId, Long imageId) {
+        runEnqueue(userId, imageId, false);
+    }
+
+    // 대기열에 없을 때만 넣음 (list 는 LPOS, stream 은 HEXISTS 로 확인), 상태는 없을 때만 QUEUED
+    public boolean ensureQueued(Long userId, Long imageId) {
+        Long added = runEnqueue(userId, imageId, true);
+        return added != null && added == 1L;
+    }
+
+    private Long runEnqueue(Long userId, Long imageId, boolean ensure) {
+        return redisTemplate.execute(ENQUEUE_SCRIPT, queueKeys(userId),
+                backendName(),
+                String.valueOf(userId),
+                String.valueOf(imageId),
+                String.valueOf(props.getInFlightPerUser()),
+                keyStatus(userId, imageId),
+                String.valueOf(TTL_STATUS.toSeconds()),
+                ensure ? "1" : "0");
+    }
+
+    /**
+     * list 모드: 사용자 pending 에서 가장 오래된 항목을 processing 으로 원자적 이동 + 가져간 시각 기록
+     * stream 모드에서는 사용자 단위로 꺼내지 않으므로 claim() 사용
+     */
+    public Optional<Long> movePendingToProcessing(Long userId) {
+        if (isStream()) {
+            throw new IllegalStateException("Stream queue backend: use claim(consumer, count)");
+        }
+        String imageIdStr = redisTemplate.execute(CLAIM_LIST_SCRIPT,
+                List.of(keyPendingQueue(userId), keyProcessingQueue(userId), KEY_CLAIMED),
+                String.valueOf(userId),
+                String.valueOf(System.currentTimeMillis()),
+                String.valueOf(TTL_STATUS.toSeconds()),
+                PREFIX_STATUS);
+        if (imageIdStr == null)
+            return Optional.empty();
+        return Optional.of(Long.parseLong(imageIdStr));
+    }
+
+    /**
+     * stream 모드: visibility timeout 을 넘긴 항목 재배달(XAUTOCLAIM) + 새 항목(XREADGROUP) 을 합쳐 최대 count 개
+     * @param consumer 워커 이름 (컨슈머 그룹 안에서 구분)
+     */
+    @SuppressWarnings("unchecked")
+    public List<QueuedImage> claim(String consumer, int count) {
+        if (!isStream()) {
+            throw new IllegalStateException("List queue backend: use movePendingToProcessing(userId)");
+        }
+        List<Object> flat = redisTemplate.execute(CLAIM_SCRIPT, List.of(props.getStream()),
+                props.getGroup(),
+                consumer,
+                String.valueOf(count),
+                String.valueOf(props.getVisibilityTimeout().toMillis()),
+                PREFIX_STATUS,
+                String.valueOf(TTL_STATUS.toSeconds()));
+
+        List<QueuedImage> claimed = new ArrayList<>();
+        if (flat == null)
+            return claimed;
+        for (int i = 0; i + 2 < flat.size(); i += 3) {
+            claimed.add(new QueuedImage((String) flat.get(i),
+                    Long.parseLong((String) flat.get(i + 1)),
+                    Long.parseLong((String) flat.get(i + 2))));
+        }
+        return claimed;
+    }
+
+    /**
+     * 여러 사용자에 걸쳐 최대 count 개를 한 번에 가져옴 (스크립트 한 번, 원자적)
+     * - list   : 대기열이 있는 사용자를 돌아가며 한 개씩 pending → processing (entryId 없음)
+     *            지난 호출이 멈춘 사용자 다음부터 봄 (매번 같은 사용자부터 가져가지 않음)
+     * - stream : claim(consumer, count) 와 같음
+     * @param consumer 워커 이름 (stream 컨슈머 이름, list 에서는 사용하지 않음)
+     * @param count 최대 개수 (sampling.queue.max-claim-batch 로 제한)
+     */
+    @SuppressWarnings("unchecked")
+    public List<QueuedImage> claimBatch(String consumer, int count) {
+        int limit = Math.max(1, Math.min(count, props.getMaxClaimBatch()));
+        if (isStream()) {
+            return claim(consumer, limit);
+        }
+
+        List<Object> flat = redisTemplate.execute(CLAIM_LIST_BATCH_SCRIPT,
+                List.of(KEY_QUEUE_USERS, KEY_CLAIMED, KEY_CLAIM_CURSOR),
+                String.valueOf(limit),
+                String.valueOf(System.currentTimeMillis()),
+                String.valueOf(TTL_STATUS.toSeconds()),
+                PREFIX_PENDING,
+                PREFIX_PROCESSING,
+                PREFIX_STATUS);
+
+        List<QueuedImage> claimed = new ArrayList<>();
+        if (flat == null)
+            return claimed;
+        for (int i = 0; i + 1 < flat.size(); i += 2) {
+            claimed.add(new QueuedImage(null,
+                    Long.parseLong((String) flat.get(i)),
+                    Long.parseLong((String) flat.get(i + 1))));
+        }
+        return claimed;
+    }
+
+    // 분석 완료 → list 는 processing 에서 제거(+ 가져간 시각/재시도 횟수 정리), stream 은 XACK + 다음 overflow 항목 올림
+    public void ack(Long userId, Long imageId) {
+        if (!isStream()) {
+            redisTemplate.execute(ACK_LIST_SCRIPT,
+                    List.of(keyProcessingQueue(userId), KEY_CLAIMED, KEY_RETRIES),
+                    String.valueOf(userId), String.valueOf(imageId));
+            return;
+        }
+        redisTemplate.execute(ACK_SCRIPT, queueKeys(userId),
+                props.getGroup(), String.valueOf(userId), String.valueOf(imageId));
+    }
+
+    /**
+     * 아직 워커가 가져가지 않은 항목만 비움 (로그아웃/정지)
+     * @return 대기열에서 빠진 imageId (원본 정리용)
+     */
+    @SuppressWarnings("unchecked")
+    public List<Long> clear(Long userId) {
+        List<Long> removed = new ArrayList<>();
+        if (!isStream()) {
+            String pendingKey = keyPendingQueue(userId);
+            List<String> pendingList = redisTemplate.opsForList().range(pendingKey, 0, -1);
+            if (pendingList != null) {
+                for (String imageIdStr : pendingList) {
+                    removed.add(Long.parseLong(imageIdStr));
+                }
+            }
+            redisTemplate.delete(pendingKey);
+            return removed;
+        }
+
+        List<Object> ids = redisTemplate.execute(CLEAR_SCRIPT, queueKeys(userId), props.getGroup());
+        if (ids != null) {
+            for (Object id : ids) {
+                removed.add(Long.parseLong((String) id));
+            }
+        }
+        return removed;
+    }
+
+    // 워커에게 넘기는 항목 (entryId 는 stream 모드의 재배달/ACK 추적용, list 모드는 null)
+    public record QueuedImage(String entryId, Long userId, Long imageId) {
+    }
+}
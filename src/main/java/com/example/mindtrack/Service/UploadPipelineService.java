@@ -0,0 +1,205 @@
+package com.example.mindtrack.Service;
+
+import com.example.mindtrack.Config.UploadPipelineProperties;
+import com.example.mindtrack.DTO.UploadTicket;
+import com.example.mindtrack.SSE.SuggestionSseHub;
+import com.example.mindtrack.Util.CustomException;
+import com.example.mindtrack.Util.ScreenshotFrame;
+import com.example.mindtrack.Util.ThreadFactories;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * /upload-screenshot 비동기 파이프라인
+ * accept(요청 스레드) → hash → dedup → encode → enqueue
+ * - 단계 사이에는 크기 제한이 있는 대기열을 둔 전용 executor 사용
+ * - 첫 단계(hash) 대기열이 가득 차면 바로 503 으로 거절, 이후 단계는 앞 단계 스레드가 직접 실행(CallerRuns)해서 속도를 맞춤
+ *   종료 중이라 다음 단계가 거절되면 예외로 끝내서 티켓을 FAILED 로 남김 (CallerRunsPolicy 는 조용히 버려서 ACCEPTED 로 남음)
+ * - 처리 상태는 Redis 티켓(upload:ticket:{ticketId})으로 조회하거나, SSE "upload" 이벤트로 받음
+ * - 가상 스레드 모드(spring.threads.virtual.enabled)에서는 Redis/DB 대기가 대부분인 dedup, enqueue 단계만 가상 스레드로 실행
+ *   (hash, encode 는 CPU 작업이라 플랫폼 스레드 유지, 단계별 스레드 수/대기열 제한은 그대로 적용)
+ */
+@Service
+@Slf4j
+public class UploadPipelineService implements DisposableBean {
+
+    private final AdaptiveSamplingService samplingService;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ObjectMapper om;
+    private final SuggestionSseHub hub;
+    private final UploadPipelineProperties props;
+
+    private final ThreadPoolExecutor hashStage;
+    private final ThreadPoolExecutor dedupStage;
+    private final ThreadPoolExecutor encodeStage;
+    private final ThreadPoolExecutor enqueueStage;
+
+    // 대기열이 가득 차면 앞 단계 스레드가 직접 실행, 종료 중이면 RejectedExecutionException → whenComplete 에서 FAILED
+    private static final RejectedExecutionHandler CALLER_RUNS_OR_FAIL = (task, executor) -> {
+        if (executor.isShutdown())
+            throw new RejectedExecutionException("업로드 파이프라인이 종료 중입니다.");
+        task.run();
+    };
+
+    public UploadPipelineService(
+            AdaptiveSamplingService samplingService,
+            RedisTemplate<String, String> redisTemplate,
+            ObjectMapper om,
+            SuggestionSseHub hub,
+            UploadPipelineProperties props,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.samplingService = samplingService;
+        this.redisTemplate = redisTemplate;
+        this.om = om;
+        this.hub = hub;
+        this.props = props;
+
+        this.hashStage = newStage(props.getHash(), ThreadFactories.named("upload-hash", false),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.dedupStage = newStage(props.getDedup(), ThreadFactories.named("upload-dedup", virtualThreads),
+                CALLER_RUNS_OR_FAIL);
+        this.encodeStage = newStage(props.getEncode(), ThreadFactories.named("upload-encode", false),
+                CALLER_RUNS_OR_FAIL);
+        this.enqueueStage = newStage(props.getEnqueue(), ThreadFactories.named("upload-enqueue", virtualThreads),
+                CALLER_RUNS_OR_FAIL);
+    }
+
+    public boolean isEnabled() {
+        return props.isEnabled();
+    }
+
+    private String keyTicket(String ticketId) {
+        return "upload:ticket:" + ticketId;
+    }
+
+    /**
+     * 업로드를 접수하고 티켓을 발급 (이미지 처리는 단계별 executor 에서 진행)
+     * @param userId 사용자 ID (Users.userId)
+     * @param encoded 업로드된 원본 바이트
+     * @param contentType 업로드 Content-Type
+     * @return ACCEPTED 상태의 티켓
+     */
+    public UploadTicket accept(String userId, byte[] encoded, String contentType) {
+        UploadTicket ticket = UploadTicket.accepted(UUID.randomUUID().toString(), userId);
+        saveTicket(ticket);
+
+        // dedup 단계에서 찾은 사용자 PK (SSE 로 결과를 보낼 때 사용)
+        AtomicReference<Long> userPk = new AtomicReference<>();
+
+        try {
+            CompletableFuture
+                    .supplyAsync(() -> samplingService.sample(decode(encoded, contentType)), hashStage)
+                    .thenApplyAsync(sampled -> {
+                        AdaptiveSamplingService.DedupResult dedup = samplingService.dedup(userId, sampled);
+                        userPk.set(dedup.user().getId());
+                        return dedup;
+                    }, dedupStage)
+                    .thenApplyAsync(dedup -> new Encoded(dedup, encodeOriginal(dedup)), encodeStage)
+                    .thenApplyAsync(enc -> samplingService.store(enc.dedup(), enc.original()), enqueueStage)
+                    .whenComplete((result, ex) -> finish(ticket, userPk.get(), result, ex));
+        } catch (RejectedExecutionException e) {
+            redisTemplate.delete(keyTicket(ticket.ticketId()));
+            throw new CustomException("업로드 처리 대기열이 가득 찼습니다. 잠시 후 다시 시도해주세요.",
+                    HttpStatus.SERVICE_UNAVAILABLE);
+        }
+
+        return ticket;
+    }
+
+    public Optional<UploadTicket> getTicket(String ticketId) {
+        String json = redisTemplate.opsForValue().get(keyTicket(ticketId));
+        if (json == null)
+            return Optional.empty();
+        try {
+            return Optional.of(om.readValue(json, UploadTicket.class));
+        } catch (JsonProcessingException e) {
+            log.warn("[Upload] 티켓 파싱 실패 ticketId={} : {}", ticketId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void finish(UploadTicket ticket, Long userPk, Map<String, Object> result, Throwable ex) {
+        UploadTicket finished;
+        if (ex == null) {
+            finished = ticket.done(result);
+        } else {
+            Throwable cause = (ex instanceof CompletionException && ex.getCause() != null) ? ex.getCause() : ex;
+            log.warn("[Upload] 처리 실패 ticketId={}, userId={} : {}", ticket.ticketId(), ticket.userId(),
+                    cause.getMessage());
+            finished = ticket.failed("에러 발생: " + cause.getMessage());
+        }
+
+        saveTicket(finished);
+        if (userPk != null) {
+            hub.publishUpload(userPk, finished);
+        }
+    }
+
+    private void saveTicket(UploadTicket ticket) {
+        try {
+            redisTemplate.opsForValue().set(keyTicket(ticket.ticketId()), om.writeValueAsString(ticket),
+                    props.getTicketTtl());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ScreenshotFrame decode(byte[] encoded, String contentType) {
+        try {
+            return ScreenshotFrame.decode(encoded, contentType);
+        } catch (IOException e) {
+            throw new UncheckedIOException("이미지를 읽을 수 없습니다: " + e.getMessage(), e);
+        }
+    }
+
+    private AdaptiveSamplingService.EncodedOriginal encodeOriginal(AdaptiveSamplingService.DedupResult dedup) {
+        try {
+            return samplingService.encodeOriginal(dedup.sampled().frame());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ThreadPoolExecutor newStage(UploadPipelineProperties.Stage stage, ThreadFactory threadFactory,
+            RejectedExecutionHandler rejectionPolicy) {
+        return new ThreadPoolExecutor(
+                stage.getThreads(), stage.getThreads(),
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(stage.getQueueCapacity()),
+                threadFactory,
+                rejectionPolicy);
+    }
+
+    @Override
+    public void destroy() {
+        hashStage.shutdown();
+        dedupStage.shutdown();
+        encodeStage.shutdown();
+        enqueueStage.shutdown();
+    }
+
+    private record Encoded(AdaptiveSamplingService.DedupResult dedup,
+            AdaptiveSamplingService.EncodedOriginal original) {
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.mindtrack.Service;
+
+import com.example.mindtrack.Config.NearCacheProperties;
+import com.example.mindtrack.Domain.Users;
+import com.example.mindtrack.Repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+/*
+ * 로그인 ID(Users.userId) → 사용자 조회 near-cache
+ * 업로드 dedup 단계와 SSE 연결마다 DB 를 조회하던 것을 로컬 캐시로 대체
+ * - 로그인 ID 와 PK 는 한 번 만들어지면 바뀌지 않으므로(변경/탈퇴 API 없음) 무효화 메시지 없이 TTL 로만 정리
+ * - 없는 사용자는 캐시하지 않음 (가입 직후 바로 조회돼야 함)
+ * - 캐시된 엔티티는 detached 상태라 id / userId 조회 용도로만 사용 (연관관계 접근 금지)
+ */
+@Service
+public class UserLookupService {
+
+    private final UserRepository userRepository;
+    private final Cache<String, Users> users;
+
+    public UserLookupService(UserRepository userRepository, NearCacheProperties props) {
+        this.userRepository = userRepository;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(props.getUsers().getMaxSize())
+                .expireAfterWrite(props.getUsers().getTtl())
+                .build();
+    }
+
+    public Optional<Users> findByUserId(String userId) {
+        Users cached = users.getIfPresent(userId);
+        if (cached != null)
+            return Optional.of(cached);
+
+        Optional<Users> found = userRepository.findByUserId(userId);
+        found.ifPresent(user -> users.put(userId, user));
+        return found;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.mindtrack.Util;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+
+/**
+ * dHash(차분해시) 계산 엔진
+ * - 스레드별로 재사용하는 그레이스케일 scratch 이미지에 리사이즈
+ * - getRGB / new Color(...) 없이 DataBufferByte 를 직접 읽어서 비트를 만든다
+ * - 요청 스레드에서 매 프레임마다 호출되므로 픽셀 단위 객체 생성이 없도록 작성
+ * - 비교 비트 수((width - 1) * height)는 ImageHash.BITS 와 같아야 한다
+ */
+public final class DHashEngine {
+
+    private final int width;
+    private final int height;
+    private final int threshold;
+
+    // 요청 스레드마다 WIDTH x HEIGHT 그레이스케일 버퍼를 하나씩 재사용
+    private final ThreadLocal<BufferedImage> scratch;
+
+    public DHashEngine(int width, int height, int threshold) {
+        if (width < 2 || height < 1) {
+            throw new IllegalArgumentException("dHash grid must be at least 2x1: " + width + "x" + height);
+        }
+        if ((width - 1) * height != ImageHash.BITS) {
+            throw new IllegalArgumentException(
+                    "dHash grid " + width + "x" + height + " does not produce " + ImageHash.BITS + " bits");
+        }
+        this.width = width;
+        this.height = height;
+        this.threshold = threshold;
+        this.scratch = ThreadLocal.withInitial(
+                () -> new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY));
+    }
+
+    public ImageHash hash(BufferedImage img) {
+        BufferedImage resized = resizeIntoScratch(img);
+
+        Raster raster = resized.getRaster();
+        byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+        int stride = ((ComponentSampleModel) raster.getSampleModel()).getScanlineStride();
+
+        long[] words = new long[ImageHash.WORDS];
+        int bitIndex = 0;
+
+        for (int y = 0; y < height; y++) {
+            int row = y * stride;
+            int left = data[row] & 0xFF;
+            for (int x = 1; x < width; x++) {
+                int right = data[row + x] & 0xFF;
+                if (left - right > threshold) {
+                    words[bitIndex >>> 6] |= (1L << (bitIndex & 63)); // 해당 위치 비트 ON
+                }
+                left = right;
+                bitIndex++;
+            }
+        }
+
+        return ImageHash.of(words);
+    }
+
+    // scratch 이미지를 매번 덮어쓰기 때문에 Src 합성으로 이전 내용(알파 포함)이 섞이지 않도록 함
+    private BufferedImage resizeIntoScratch(BufferedImage img) {
+        BufferedImage resized = scratch.get();
+        Graphics2D g = resized.createGraphics();
+        try {
+            g.setComposite(AlphaComposite.Src);
+            g.drawImage(img, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return resized;
+    }
+}
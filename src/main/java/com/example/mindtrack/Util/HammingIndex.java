@@ -0,0 +1,142 @@
+package com.example.mindtrack.Util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 최근 해시 목록용 다중 인덱스 해밍 검색 구조 (Multi-Index Hashing)
+ * - 256비트 해시를 16비트짜리 밴드 16개로 나누고, (밴드 번호, 밴드 값) 별로 버킷을 만든다
+ * - 비둘기집 원리: 해밍거리 d < 16 이면 적어도 하나의 밴드는 완전히 같으므로
+ *   질의 해시와 밴드 값이 같은 버킷만 확인하면 된다 (전체 선형 탐색 불필요)
+ * - 같은 해시는 하나만 유지하고, 용량을 넘으면 가장 오래된 항목부터 제거 (Redis 최근 목록과 같은 규칙)
+ * - 스레드 안전하지 않음: 호출부에서 동기화
+ */
+public final class HammingIndex {
+
+    private static final int BAND_BITS = 16;
+    private static final int BANDS = ImageHash.BITS / BAND_BITS;
+    private static final int BAND_MASK = (1 << BAND_BITS) - 1;
+
+    private final int capacity;
+    // 삽입 순서 유지 (가장 오래된 항목이 맨 앞)
+    private final LinkedHashMap<ImageHash, Entry> byHash = new LinkedHashMap<>();
+    // key = (밴드 번호 << 16) | 밴드 값
+    private final Map<Integer, List<Entry>> buckets = new HashMap<>();
+    private long seq;
+
+    public HammingIndex(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    public int size() {
+        return byHash.size();
+    }
+
+    /**
+     * 해시를 가장 최신 항목으로 추가
+     * 같은 해시가 이미 있으면 기존 항목을 지우고 새 imageId 로 교체
+     */
+    public void put(long imageId, ImageHash hash) {
+        Entry existing = byHash.remove(hash);
+        if (existing != null) {
+            unlink(existing);
+        }
+
+        Entry entry = new Entry(imageId, hash, ++seq);
+        byHash.put(hash, entry);
+        for (int band = 0; band < BANDS; band++) {
+            buckets.computeIfAbsent(bucketKey(band, hash), k -> new ArrayList<>(2)).add(entry);
+        }
+
+        Iterator<Entry> it = byHash.values().iterator();
+        while (byHash.size() > capacity && it.hasNext()) {
+            Entry eldest = it.next();
+            it.remove();
+            unlink(eldest);
+        }
+    }
+
+    /**
+     * 해밍거리 maxDistance 이하인 항목 중 가장 가까운 항목 (거리가 같으면 최신 항목)
+     * @return 없으면 null
+     */
+    public Match nearest(ImageHash query, int maxDistance) {
+        if (maxDistance >= BANDS) {
+            // 밴드 수 이상의 거리는 비둘기집 조건이 성립하지 않으므로 전체 탐색
+            return scanAll(query, maxDistance);
+        }
+
+        Entry best = null;
+        int bestDist = Integer.MAX_VALUE;
+        for (int band = 0; band < BANDS; band++) {
+            List<Entry> bucket = buckets.get(bucketKey(band, query));
+            if (bucket == null)
+                continue;
+            for (Entry e : bucket) {
+                int dist = query.distance(e.hash);
+                if (dist <= maxDistance && isBetter(dist, e, bestDist, best)) {
+                    best = e;
+                    bestDist = dist;
+                }
+            }
+        }
+        return best == null ? null : new Match(best.imageId, best.hash, bestDist);
+    }
+
+    private Match scanAll(ImageHash query, int maxDistance) {
+        Entry best = null;
+        int bestDist = Integer.MAX_VALUE;
+        for (Entry e : byHash.values()) {
+            int dist = query.distance(e.hash);
+            if (dist <= maxDistance && isBetter(dist, e, bestDist, best)) {
+                best = e;
+                bestDist = dist;
+            }
+        }
+        return best == null ? null : new Match(best.imageId, best.hash, bestDist);
+    }
+
+    private static boolean isBetter(int dist, Entry e, int bestDist, Entry best) {
+        return dist < bestDist || (dist == bestDist && e.seq > best.seq);
+    }
+
+    private void unlink(Entry entry) {
+        for (int band = 0; band < BANDS; band++) {
+            Integer key = bucketKey(band, entry.hash);
+            List<Entry> bucket = buckets.get(key);
+            if (bucket == null)
+                continue;
+            bucket.remove(entry);
+            if (bucket.isEmpty())
+                buckets.remove(key);
+        }
+    }
+
+    private static Integer bucketKey(int band, ImageHash hash) {
+        long word = hash.word(band >>> 2);
+        int value = (int) (word >>> ((band & 3) * BAND_BITS)) & BAND_MASK;
+        return (band << BAND_BITS) | value;
+    }
+
+    private static final class Entry {
+        private final long imageId;
+        private final ImageHash hash;
+        private final long seq;
+
+        private Entry(long imageId, ImageHash hash, long seq) {
+            this.imageId = imageId;
+            this.hash = hash;
+            this.seq = seq;
+        }
+    }
+
+    public record Match(long imageId, ImageHash hash, int distance) {
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.mindtrack.Util;
+
+/**
+ * 256비트 지각 해시(dHash) 값
+ * - 17x16 그리드의 비교 비트 256개를 long 4개에 나눠 담는다 (bit i → word i/64, 위치 i%64)
+ * - Redis 에는 고정 길이 16진수 문자열(64자)로 저장
+ */
+public record ImageHash(long w0, long w1, long w2, long w3) {
+
+    public static final int BITS = 256;
+    public static final int WORDS = BITS / Long.SIZE;
+    private static final int HEX_LENGTH = BITS / 4;
+
+    public static ImageHash of(long[] words) {
+        if (words.length != WORDS) {
+            throw new IllegalArgumentException("ImageHash needs " + WORDS + " words: " + words.length);
+        }
+        return new ImageHash(words[0], words[1], words[2], words[3]);
+    }
+
+    public long word(int index) {
+        return switch (index) {
+            case 0 -> w0;
+            case 1 -> w1;
+            case 2 -> w2;
+            case 3 -> w3;
+            default -> throw new IndexOutOfBoundsException(index);
+        };
+    }
+
+    // 해밍거리: 워드별 XOR 후 popcount 합산
+    // 분기 없이 독립된 4개의 bitCount 로 풀어 두어 JIT 가 POPCNT 명령으로 바로 내린다
+    public int distance(ImageHash other) {
+        return Long.bitCount(w0 ^ other.w0)
+                + Long.bitCount(w1 ^ other.w1)
+                + Long.bitCount(w2 ^ other.w2)
+                + Long.bitCount(w3 ^ other.w3);
+    }
+
+    public String toHex() {
+        StringBuilder sb = new StringBuilder(HEX_LENGTH);
+        appendHex(sb, w0);
+        appendHex(sb, w1);
+        appendHex(sb, w2);
+        appendHex(sb, w3);
+        return sb.toString();
+    }
+
+    public static ImageHash fromHex(String hex) {
+        if (hex == null || hex.length() != HEX_LENGTH) {
+            throw new IllegalArgumentException("Invalid image hash: " + hex);
+        }
+        return new ImageHash(
+                Long.parseUnsignedLong(hex, 0, 16, 16),
+                Long.parseUnsignedLong(hex, 16, 32, 16),
+                Long.parseUnsignedLong(hex, 32, 48, 16),
+                Long.parseUnsignedLong(hex, 48, 64, 16));
+    }
+
+    private static void appendHex(StringBuilder sb, long word) {
+        String s = Long.toHexString(word);
+        for (int i = s.length(); i < 16; i++) {
+            sb.append('0');
+        }
+        sb.append(s);
+    }
+
+    @Override
+    public String toString() {
+        return toHex();
+    }
+}
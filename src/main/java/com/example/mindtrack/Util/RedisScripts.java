@@ -0,0 +1,32 @@
+package com.example.mindtrack.Util;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * classpath 의 Lua 파일들을 이어 붙여 Redis 스크립트로 로드
+ * 공통 함수 파일(recent_hashes.lua, screenshot_queue.lua)을 앞에 두고 본문 스크립트를 마지막에 둔다
+ */
+public final class RedisScripts {
+
+    private RedisScripts() {
+    }
+
+    public static <T> DefaultRedisScript<T> load(Class<T> resultType, String... resources) {
+        StringBuilder text = new StringBuilder();
+        for (String resource : resources) {
+            try {
+                text.append(StreamUtils.copyToString(new ClassPathResource(resource).getInputStream(),
+                        StandardCharsets.UTF_8)).append('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot load Redis script " + resource, e);
+            }
+        }
+        return new DefaultRedisScript<>(text.toString(), resultType);
+    }
+}
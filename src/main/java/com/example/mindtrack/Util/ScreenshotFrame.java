@@ -0,0 +1,117 @@
+package com.example.mindtrack.Util;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * 업로드된 스크린샷 한 장
+ * - 클라이언트가 보낸 인코딩 바이트를 그대로 들고 있고
+ * - 해시/SSIM 평면 계산용으로는 ImageReader 서브샘플링으로 작은 미리보기만 디코딩한다
+ *   (4K 스크린샷을 INT_RGB 로 전부 펼치면 ~33MB → 1/8 서브샘플링이면 ~0.5MB)
+ * - 원본 바이트는 재인코딩 없이 그대로 캐시/FastAPI 로 넘기고,
+ *   원본 해상도 디코딩은 포맷 변환이 필요할 때 fullImage() 를 처음 호출하는 순간 한 번만 수행
+ */
+public final class ScreenshotFrame {
+
+    // 미리보기 최소 크기: dHash(17x16), SSIM 평면(128x128) 보다 충분히 크게 유지
+    private static final int PREVIEW_MIN_SIDE = 256;
+
+    private final byte[] encoded;
+    private final String contentType;
+    private final int width;
+    private final int height;
+    private final BufferedImage preview;
+    private BufferedImage fullImage;
+
+    private ScreenshotFrame(byte[] encoded, String contentType, int width, int height, BufferedImage preview) {
+        this.encoded = encoded;
+        this.contentType = contentType;
+        this.width = width;
+        this.height = height;
+        this.preview = preview;
+    }
+
+    /**
+     * 헤더에서 크기를 읽고, 서브샘플링한 미리보기만 디코딩
+     * @param contentType 클라이언트가 보낸 Content-Type (ImageReader 가 MIME 타입을 알려주면 그 값을 우선 사용)
+     * @throws IOException 읽을 수 있는 ImageReader 가 없거나 디코딩 실패
+     */
+    public static ScreenshotFrame decode(byte[] encoded, String contentType) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(encoded))) {
+            if (in == null) {
+                throw new IOException("Cannot open image stream");
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format: " + contentType);
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+
+                // 짧은 변 기준으로 PREVIEW_MIN_SIDE 이상 남도록 정수 배 서브샘플링
+                int step = Math.max(1, Math.min(width, height) / PREVIEW_MIN_SIDE);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+
+                BufferedImage preview = reader.read(0, param);
+                return new ScreenshotFrame(encoded, detectContentType(reader, contentType), width, height, preview);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // 실제 디코딩한 ImageReader 기준 MIME 타입 (예: image/png), 모르면 클라이언트 값
+    private static String detectContentType(ImageReader reader, String fallback) {
+        if (reader.getOriginatingProvider() != null) {
+            String[] mimeTypes = reader.getOriginatingProvider().getMIMETypes();
+            if (mimeTypes != null && mimeTypes.length > 0) {
+                return mimeTypes[0];
+            }
+        }
+        return fallback;
+    }
+
+    public byte[] encoded() {
+        return encoded;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    // 해시/SSIM 평면 계산용 축소 이미지
+    public BufferedImage preview() {
+        return preview;
+    }
+
+    // 원본 해상도 이미지 (처음 호출할 때 디코딩)
+    public BufferedImage fullImage() throws IOException {
+        if (fullImage == null) {
+            BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(encoded));
+            if (decoded == null) {
+                throw new IOException("Unsupported image format: " + contentType);
+            }
+            fullImage = decoded;
+        }
+        return fullImage;
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.mindtrack.Util;
+
+/**
+ * 타일 단위 SSIM 계산기 (그레이스케일 밝기 평면 byte[] 입력)
+ * - 균등 가중치: 두 평면을 한 번만 훑어 Σx, Σy, Σx², Σy², Σxy 누적합 테이블(summed-area table)을 만들고
+ *   각 타일의 평균/분산/공분산을 O(1)로 꺼낸다
+ * - 가우시안 가중치: 타일 크기의 가중치 커널을 미리 만들어 두고 타일당 한 번의 순회로 가중 합을 구한다
+ * - 누적합 버퍼는 스레드별로 재사용 (요청마다 배열을 새로 만들지 않음)
+ */
+public final class SsimCalculator {
+
+    private static final double C1 = 6.5025;  // (0.01 * 255)^2
+    private static final double C2 = 58.5225; // (0.03 * 255)^2
+
+    private final int width;
+    private final int height;
+    private final int tilesX;
+    private final int tilesY;
+    private final int tileW;
+    private final int tileH;
+    // null 이면 균등 가중치(누적합 테이블 사용)
+    private final double[] gaussianKernel;
+
+    // Σx, Σy, Σx², Σy², Σxy 누적합을 (width+1) x (height+1) 크기로 이어 붙인 버퍼
+    private final ThreadLocal<long[]> satBuffer;
+
+    public SsimCalculator(int width, int height, int tilesX, int tilesY, boolean gaussianWindow, double gaussianSigma) {
+        if (tilesX < 1 || tilesY < 1 || width < tilesX || height < tilesY) {
+            throw new IllegalArgumentException(
+                    "Invalid SSIM tile grid " + tilesX + "x" + tilesY + " for plane " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.tilesX = tilesX;
+        this.tilesY = tilesY;
+        this.tileW = width / tilesX;
+        this.tileH = height / tilesY;
+        this.gaussianKernel = gaussianWindow ? buildGaussianKernel(tileW, tileH, gaussianSigma) : null;
+
+        int satSize = (width + 1) * (height + 1);
+        this.satBuffer = ThreadLocal.withInitial(() -> new long[satSize * 5]);
+    }
+
+    public int planeLength() {
+        return width * height;
+    }
+
+    /**
+     * 두 밝기 평면의 타일 평균 SSIM
+     * @return -1 ~ 1 (보통 0~1), 1에 가까울수록 유사
+     */
+    public double compute(byte[] plane1, byte[] plane2) {
+        if (plane1.length != planeLength() || plane2.length != planeLength()) {
+            throw new IllegalArgumentException("SSIM plane must be " + width + "x" + height);
+        }
+        return gaussianKernel == null
+                ? computeUniform(plane1, plane2)
+                : computeGaussian(plane1, plane2);
+    }
+
+    private double computeUniform(byte[] p1, byte[] p2) {
+        long[] sat = satBuffer.get();
+        int stride = width + 1;
+        int size = stride * (height + 1);
+        int oY = size, oXX = size * 2, oYY = size * 3, oXY = size * 4;
+
+        // 0번째 행은 항상 0 (열 0 은 아래 루프에서 채움)
+        for (int i = 0; i < stride; i++) {
+            sat[i] = 0;
+            sat[oY + i] = 0;
+            sat[oXX + i] = 0;
+            sat[oYY + i] = 0;
+            sat[oXY + i] = 0;
+        }
+
+        // 한 번의 순회로 다섯 개 누적합 테이블 생성
+        for (int y = 0; y < height; y++) {
+            long rx = 0, ry = 0, rxx = 0, ryy = 0, rxy = 0;
+            int src = y * width;
+            int prev = y * stride;
+            int cur = prev + stride;
+            sat[cur] = 0;
+            sat[oY + cur] = 0;
+            sat[oXX + cur] = 0;
+            sat[oYY + cur] = 0;
+            sat[oXY + cur] = 0;
+            for (int x = 0; x < width; x++) {
+                int a = p1[src + x] & 0xFF;
+                int b = p2[src + x] & 0xFF;
+                rx += a;
+                ry += b;
+                rxx += a * a;
+                ryy += b * b;
+                rxy += a * b;
+                int i = cur + x + 1;
+                int up = prev + x + 1;
+                sat[i] = sat[up] + rx;
+                sat[oY + i] = sat[oY + up] + ry;
+                sat[oXX + i] = sat[oXX + up] + rxx;
+                sat[oYY + i] = sat[oYY + up] + ryy;
+                sat[oXY + i] = sat[oXY + up] + rxy;
+            }
+        }
+
+        double n = (double) tileW * tileH;
+        double total = 0.0;
+        for (int ty = 0; ty < tilesY; ty++) {
+            int y0 = ty * tileH, y1 = y0 + tileH;
+            for (int tx = 0; tx < tilesX; tx++) {
+                int x0 = tx * tileW, x1 = x0 + tileW;
+                int a = y0 * stride + x0, b = y0 * stride + x1, c = y1 * stride + x0, d = y1 * stride + x1;
+
+                double mu1 = (sat[d] - sat[b] - sat[c] + sat[a]) / n;
+                double mu2 = (sat[oY + d] - sat[oY + b] - sat[oY + c] + sat[oY + a]) / n;
+                double exx = (sat[oXX + d] - sat[oXX + b] - sat[oXX + c] + sat[oXX + a]) / n;
+                double eyy = (sat[oYY + d] - sat[oYY + b] - sat[oYY + c] + sat[oYY + a]) / n;
+                double exy = (sat[oXY + d] - sat[oXY + b] - sat[oXY + c] + sat[oXY + a]) / n;
+
+                total += tileSsim(mu1, mu2, exx - mu1 * mu1, eyy - mu2 * mu2, exy - mu1 * mu2);
+            }
+        }
+        return total / (tilesX * tilesY);
+    }
+
+    private double computeGaussian(byte[] p1, byte[] p2) {
+        double[] k = gaussianKernel;
+        double total = 0.0;
+        for (int ty = 0; ty < tilesY; ty++) {
+            for (int tx = 0; tx < tilesX; tx++) {
+                double sx = 0, sy = 0, sxx = 0, syy = 0, sxy = 0;
+                int ki = 0;
+                for (int y = ty * tileH, yEnd = y + tileH; y < yEnd; y++) {
+                    int row = y * width + tx * tileW;
+                    for (int x = 0; x < tileW; x++, ki++) {
+                        double w = k[ki];
+                        int a = p1[row + x] & 0xFF;
+                        int b = p2[row + x] & 0xFF;
+                        sx += w * a;
+                        sy += w * b;
+                        sxx += w * a * a;
+                        syy += w * b * b;
+                        sxy += w * a * b;
+                    }
+                }
+                // 커널 합이 1 이므로 가중 합이 곧 가중 평균
+                total += tileSsim(sx, sy, sxx - sx * sx, syy - sy * sy, sxy - sx * sy);
+            }
+        }
+        return total / (tilesX * tilesY);
+    }
+
+    private static double tileSsim(double mu1, double mu2, double sigma1Sq, double sigma2Sq, double sigma12) {
+        double numerator = (2 * mu1 * mu2 + C1) * (2 * sigma12 + C2);
+        double denominator = (mu1 * mu1 + mu2 * mu2 + C1) * (sigma1Sq + sigma2Sq + C2);
+        return denominator == 0 ? 0 : numerator / denominator;
+    }
+
+    // 타일 중심 기준 2차원 가우시안 가중치 (합이 1 이 되도록 정규화)
+    private static double[] buildGaussianKernel(int w, int h, double sigma) {
+        if (sigma <= 0) {
+            throw new IllegalArgumentException("Gaussian sigma must be positive: " + sigma);
+        }
+        double[] kernel = new double[w * h];
+        double cx = (w - 1) / 2.0, cy = (h - 1) / 2.0;
+        double denom = 2 * sigma * sigma;
+        double sum = 0;
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                double dx = x - cx, dy = y - cy;
+                double v = Math.exp(-(dx * dx + dy * dy) / denom);
+                kernel[y * w + x] = v;
+                sum += v;
+            }
+        }
+        for (int i = 0; i < kernel.length; i++) {
+            kernel[i] /= sum;
+        }
+        return kernel;
+    }
+}
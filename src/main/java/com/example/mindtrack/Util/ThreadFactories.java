@@ -0,0 +1,33 @@
+package com.example.mindtrack.Util;
+
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 직접 만드는 스레드(리스너 루프, 업로드 파이프라인 단계)용 ThreadFactory
+ * - spring.threads.virtual.enabled=true 이면 가상 스레드 (Java 21 이상 필요, 아니면 시작 시 UnsupportedOperationException)
+ * - 아니면 기존처럼 이름 붙은 데몬 플랫폼 스레드
+ */
+public final class ThreadFactories {
+
+    private ThreadFactories() {
+    }
+
+    /**
+     * @param name 스레드 이름 접두어 (예: upload-dedup → upload-dedup-1, upload-dedup-2 ...)
+     * @param virtual 가상 스레드 사용 여부
+     */
+    public static ThreadFactory named(String name, boolean virtual) {
+        if (virtual) {
+            return new VirtualThreadTaskExecutor(name + "-").getVirtualThreadFactory();
+        }
+        AtomicInteger seq = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,11 @@
+-- list 대기열 완료 처리 (ScreenshotQueueService.ack)
+--
+-- KEYS[1] processing:{id}, KEYS[2] screenshot:claimed, KEYS[3] screenshot:retries
+-- ARGV[1] userId, ARGV[2] imageId
+--
+-- 반환: processing 에서 제거한 개수
+
+local member = ARGV[1] .. ':' .. ARGV[2]
+redis.call('ZREM', KEYS[2], member)
+redis.call('HDEL', KEYS[3], member)
+return redis.call('LREM', KEYS[1], 0, ARGV[2])
@@ -0,0 +1,22 @@
+-- 분석 완료 처리 (ScreenshotQueueService.ack)
+-- XACK + XDEL 후 이 사용자의 overflow 에서 다음 항목 하나를 스트림으로 올림
+--
+-- KEYS     스트림 대기열 키 (screenshot_queue.lua 참고)
+-- ARGV[1]  컨슈머 그룹, ARGV[2] userId, ARGV[3] imageId
+--
+-- 반환: 대기열에 있던 항목이면 1, 아니면 0
+
+local entryId = redis.call('HGET', KEYS[4], ARGV[3])
+if not entryId then
+    return 0
+end
+
+if entryId == '' then
+    -- 아직 스트림에 못 올라간 항목
+    redis.call('HDEL', KEYS[4], ARGV[3])
+    redis.call('LREM', KEYS[3], 0, ARGV[3])
+    return 1
+end
+
+stream_release(KEYS, ARGV[1], ARGV[2], ARGV[3], entryId)
+return 1
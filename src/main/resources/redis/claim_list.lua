@@ -0,0 +1,15 @@
+-- list 대기열에서 하나 가져오기 (ScreenshotQueueService.movePendingToProcessing)
+-- pending → processing 이동과 동시에 가져간 시각을 기록 (reaper 의 visibility timeout 기준)
+--
+-- KEYS[1] pending:{id}, KEYS[2] processing:{id}, KEYS[3] screenshot:claimed
+-- ARGV[1] userId, ARGV[2] 현재 시각(ms), ARGV[3] 상태 TTL(초), ARGV[4] 상태 키 접두어
+--
+-- 반환: imageId (없으면 nil)
+
+local imageId = redis.call('RPOPLPUSH', KEYS[1], KEYS[2])
+if not imageId then
+    return nil
+end
+redis.call('ZADD', KEYS[3], ARGV[2], ARGV[1] .. ':' .. imageId)
+redis.call('SET', ARGV[4] .. ARGV[1] .. ':' .. imageId, 'PROCESSING', 'EX', ARGV[3])
+return imageId
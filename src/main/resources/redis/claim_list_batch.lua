@@ -0,0 +1,56 @@
+-- list 대기열에서 여러 사용자에 걸쳐 최대 N 개 가져오기 (ScreenshotQueueService.claimBatch)
+-- 대기열이 있는 사용자를 돌아가며 한 개씩 가져감 (한 사용자가 배치를 독차지하지 않음)
+-- 사용자 목록은 지난 호출이 멈춘 SSCAN cursor 부터 N 명씩 봄 (KEYS[3] 에 저장)
+-- → 매번 SMEMBERS 의 같은 앞쪽 사용자부터 가져가서 뒤쪽 사용자가 밀리지 않고, 한 번에 전체 사용자를 읽지 않음
+-- 각 항목은 pending → processing 이동 + 가져간 시각 기록 + 상태 PROCESSING
+-- 사용자별 키는 KEYS 로 선언할 수 없어 접두어(ScreenshotQueueService.PREFIX_*)로 만듦 → 단일 노드 Redis 전용
+--
+-- KEYS[1] screenshot:queue:users, KEYS[2] screenshot:claimed, KEYS[3] screenshot:claim:cursor
+-- ARGV[1] 최대 개수, ARGV[2] 현재 시각(ms), ARGV[3] 상태 TTL(초)
+-- ARGV[4] pending 접두어, ARGV[5] processing 접두어, ARGV[6] 상태 키 접두어
+--
+-- 반환: { userId, imageId, userId, imageId, ... }
+
+local max = tonumber(ARGV[1])
+local result = {}
+local taken = 0
+
+local start = redis.call('GET', KEYS[3]) or '0'
+local cursor = start
+local wrapped = false
+while taken < max do
+    local scan = redis.call('SSCAN', KEYS[1], cursor, 'COUNT', max)
+    cursor = scan[1]
+
+    local active = scan[2]
+    while taken < max and #active > 0 do
+        local stillQueued = {}
+        for _, userId in ipairs(active) do
+            if taken >= max then
+                break
+            end
+            local imageId = redis.call('RPOPLPUSH', ARGV[4] .. userId, ARGV[5] .. userId)
+            if imageId then
+                local member = userId .. ':' .. imageId
+                redis.call('ZADD', KEYS[2], ARGV[2], member)
+                redis.call('SET', ARGV[6] .. member, 'PROCESSING', 'EX', ARGV[3])
+                table.insert(result, userId)
+                table.insert(result, imageId)
+                taken = taken + 1
+                table.insert(stillQueued, userId)
+            end
+        end
+        active = stillQueued
+    end
+
+    -- 한 바퀴를 다 돌았으면 멈춤 (중간 cursor 에서 시작했으면 0 을 두 번째 만날 때)
+    if cursor == '0' then
+        if start == '0' or wrapped then
+            break
+        end
+        wrapped = true
+    end
+end
+
+redis.call('SET', KEYS[3], cursor)
+return result
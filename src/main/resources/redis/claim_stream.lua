@@ -0,0 +1,55 @@
+-- 스트림에서 분석할 항목 가져오기 (ScreenshotQueueService.claim)
+-- 1) minIdle 이상 ACK 없이 멈춘 항목을 XAUTOCLAIM 으로 이 컨슈머에게 재배달
+-- 2) 남은 개수만큼 새 항목을 XREADGROUP 으로 읽음
+-- 가져온 항목은 상태를 PROCESSING 으로 바꿈
+--
+-- KEYS[1] 스트림
+-- ARGV[1] 컨슈머 그룹, ARGV[2] 컨슈머 이름, ARGV[3] 최대 개수, ARGV[4] minIdle(ms)
+-- ARGV[5] 상태 키 접두어 "screenshot:status:", ARGV[6] 상태 TTL(초)
+--
+-- 반환: { 항목 ID, userId, imageId, 항목 ID, userId, imageId, ... }
+
+local count = tonumber(ARGV[3])
+local result = {}
+local claimed = 0
+
+local function take(entry)
+    local fields = entry[2]
+    if not fields then
+        return
+    end
+    local userId, imageId
+    for i = 1, #fields, 2 do
+        if fields[i] == 'userId' then
+            userId = fields[i + 1]
+        elseif fields[i] == 'imageId' then
+            imageId = fields[i + 1]
+        end
+    end
+    if userId and imageId then
+        redis.call('SET', ARGV[5] .. userId .. ':' .. imageId, 'PROCESSING', 'EX', ARGV[6])
+        table.insert(result, entry[1])
+        table.insert(result, userId)
+        table.insert(result, imageId)
+        claimed = claimed + 1
+    end
+end
+
+-- { 다음 커서, { {id, fields}, ... }, 삭제된 ID 목록 }
+local auto = redis.call('XAUTOCLAIM', KEYS[1], ARGV[1], ARGV[2], ARGV[4], '0-0', 'COUNT', count)
+for _, entry in ipairs(auto[2]) do
+    take(entry)
+end
+
+if claimed < count then
+    -- { { 스트림, { {id, fields}, ... } } } 또는 새 항목이 없으면 nil(false)
+    local fresh = redis.call('XREADGROUP', 'GROUP', ARGV[1], ARGV[2], 'COUNT', count - claimed,
+            'STREAMS', KEYS[1], '>')
+    if fresh then
+        for _, entry in ipairs(fresh[1][2]) do
+            take(entry)
+        end
+    end
+end
+
+return result
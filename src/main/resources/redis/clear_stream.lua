@@ -0,0 +1,32 @@
+-- 사용자 대기열 비우기 (ScreenshotQueueService.clear - 로그아웃/정지)
+-- overflow 항목 + 스트림에 올라갔지만 아직 어떤 워커도 가져가지 않은 항목만 삭제
+-- (이미 배달된 항목은 processing 과 같으므로 남겨 둠)
+--
+-- KEYS     스트림 대기열 키 (screenshot_queue.lua 참고)
+-- ARGV[1]  컨슈머 그룹
+--
+-- 반환: 삭제한 imageId 목록
+
+local removed = {}
+local entries = redis.call('HGETALL', KEYS[4])
+for i = 1, #entries, 2 do
+    local imageId, entryId = entries[i], entries[i + 1]
+    local drop = entryId == ''
+    if not drop then
+        -- PEL 에 없으면 아직 배달 전
+        local pending = redis.call('XPENDING', KEYS[1], ARGV[1], entryId, entryId, 1)
+        if #pending == 0 then
+            redis.call('XDEL', KEYS[1], entryId)
+            if redis.call('DECR', KEYS[2]) < 0 then
+                redis.call('SET', KEYS[2], 0)
+            end
+            drop = true
+        end
+    end
+    if drop then
+        redis.call('HDEL', KEYS[4], imageId)
+        table.insert(removed, imageId)
+    end
+end
+redis.call('DEL', KEYS[3])
+return removed
@@ -0,0 +1,19 @@
+-- 비슷한 프레임 묶기 공통 함수 (다른 스크립트 앞에 붙여서 로드됨)
+-- coalesce:due   ZSET  "userId:imageId" → 대기열에 넣을 시각(ms)
+-- coalesce:first HASH  "userId:imageId" → 첫 프레임 시각(ms)
+-- 프레임이 들어올 때마다 마감을 now + window 로 미루되, 첫 프레임 + maxLatency 는 넘기지 않음 (maxLatency 0 이면 제한 없음)
+
+local function coalesce_hold(dueKey, firstKey, member, now, window, maxLatency)
+    local first = tonumber(redis.call('HGET', firstKey, member))
+    if not first then
+        first = now
+        redis.call('HSET', firstKey, member, now)
+    end
+    local due = now + window
+    if maxLatency > 0 and first + maxLatency < due then
+        due = first + maxLatency
+    end
+    redis.call('ZADD', dueKey, due, member)
+    return due
+end
+
@@ -0,0 +1,16 @@
+-- 비슷한 프레임이 기존 이미지 원본을 덮어쓴 뒤 호출 (ScreenshotCoalescer.touch)
+-- 묶인 프레임 수 증가 + 아직 묶기 window 안이면 마감을 미룸
+--
+-- KEYS[1] coalesce:due, KEYS[2] coalesce:first, KEYS[3] screenshot:merged:{userId}:{imageId}
+-- ARGV[1] "userId:imageId", ARGV[2] 현재 시각(ms), ARGV[3] window(ms), ARGV[4] maxLatency(ms), ARGV[5] TTL(초)
+--
+-- 반환: { 아직 대기열에 안 넣었으면 1 아니면 0, 지금까지 묶인 프레임 수 }
+
+local merged = redis.call('INCR', KEYS[3])
+redis.call('EXPIRE', KEYS[3], ARGV[5])
+
+if redis.call('ZSCORE', KEYS[1], ARGV[1]) then
+    coalesce_hold(KEYS[1], KEYS[2], ARGV[1], tonumber(ARGV[2]), tonumber(ARGV[3]), tonumber(ARGV[4]))
+    return { 1, merged }
+end
+return { 0, merged }
@@ -0,0 +1,26 @@
+-- 분석 대기열 등록 (ScreenshotQueueService.enqueue / ensureQueued)
+--
+-- KEYS     대기열 키 (screenshot_queue.lua 참고)
+-- ARGV[1]  backend ('list' | 'stream')
+-- ARGV[2]  userId
+-- ARGV[3]  imageId
+-- ARGV[4]  사용자별 동시 처리 개수 (stream)
+-- ARGV[5]  상태 키 screenshot:status:{userId}:{imageId}
+-- ARGV[6]  상태 TTL(초)
+-- ARGV[7]  '1' 이면 이미 들어있을 때 다시 넣지 않음 (ensurePending), 상태도 없을 때만 설정
+--
+-- 반환: 새로 넣었으면 1, 아니면 0
+
+local ensure = ARGV[7] == '1'
+
+if ensure and is_queued(ARGV[1], KEYS, ARGV[3]) == 1 then
+    return 0
+end
+
+local added = enqueue_image(ARGV[1], KEYS, ARGV[2], ARGV[3], tonumber(ARGV[4]))
+if ensure then
+    redis.call('SET', ARGV[5], 'QUEUED', 'EX', ARGV[6], 'NX')
+else
+    redis.call('SET', ARGV[5], 'QUEUED', 'EX', ARGV[6])
+end
+return added
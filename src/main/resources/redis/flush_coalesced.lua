@@ -0,0 +1,33 @@
+-- 마감이 지난 묶음을 분석 대기열에 넣음 (ScreenshotCoalescer.flush)
+-- ZREM 으로 먼저 가져가므로 여러 인스턴스가 동시에 돌아도 한 번만 넣음
+-- 사용자별 대기열 키는 ScreenshotQueueService.queueKeys 와 같은 순서로, 넘겨받은 접두어(PREFIX_*)로 만듦
+-- (항목마다 사용자가 달라 KEYS 로 선언할 수 없음 → 단일 노드 Redis 전용)
+--
+-- KEYS[1] coalesce:due, KEYS[2] coalesce:first, KEYS[3] screenshot:queue:users
+-- ARGV[1] 현재 시각(ms), ARGV[2] 한 번에 넣을 최대 개수
+-- ARGV[3] 대기열 backend ('list' | 'stream'), ARGV[4] 스트림 키, ARGV[5] 사용자별 동시 처리 개수, ARGV[6] 상태 TTL(초)
+-- ARGV[7] pending 접두어, ARGV[8] inflight 접두어, ARGV[9] overflow 접두어, ARGV[10] entries 접두어, ARGV[11] 상태 키 접두어
+--
+-- 반환: 대기열에 넣은 개수
+
+local due = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, tonumber(ARGV[2]))
+local flushed = 0
+for _, member in ipairs(due) do
+    if redis.call('ZREM', KEYS[1], member) == 1 then
+        redis.call('HDEL', KEYS[2], member)
+        local sep = string.find(member, ':', 1, true)
+        local userId = string.sub(member, 1, sep - 1)
+        local imageId = string.sub(member, sep + 1)
+
+        local keys
+        if ARGV[3] == 'stream' then
+            keys = { ARGV[4], ARGV[8] .. userId, ARGV[9] .. userId, ARGV[10] .. userId, KEYS[3] }
+        else
+            keys = { ARGV[7] .. userId, KEYS[3] }
+        end
+        enqueue_image(ARGV[3], keys, userId, imageId, tonumber(ARGV[5]))
+        redis.call('SET', ARGV[11] .. member, 'QUEUED', 'EX', ARGV[6])
+        flushed = flushed + 1
+    end
+end
+return flushed
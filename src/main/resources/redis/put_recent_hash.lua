@@ -0,0 +1,24 @@
+-- 최근 해시 추가 (ScreenshotImageCacheService.cacheRecentImageHash)
+--
+-- KEYS[1] user:{id}:recentHashes
+-- KEYS[2] user:{id}:recentHashes:imageIds
+-- KEYS[3] user:{id}:recentHashes:version
+-- ARGV[1] 평면 키 접두어 "user:{id}:plane:"
+-- ARGV[2] 해시 hex (64자)
+-- ARGV[3] imageId
+-- ARGV[4] 밝기 평면 바이트 (빈 값이면 저장 안 함)
+-- ARGV[5] 최근 목록 최대 길이
+-- ARGV[6] 평면 TTL(초), ARGV[7] 최근 목록 TTL(초)
+-- ARGV[8] near-cache 무효화 채널 (빈 값이면 PUBLISH 안 함), ARGV[9] 무효화 메시지 접두어 "{nodeId}|RECENT|{userId}|"
+--
+-- 반환: { 최근 목록 버전, 길이 제한으로 밀려난 해시 hex ... }
+
+local version, evicted = put_recent(KEYS[1], KEYS[2], KEYS[3], ARGV[1], ARGV[2], ARGV[3], ARGV[4],
+        tonumber(ARGV[5]), ARGV[6], ARGV[7])
+publish_recent(ARGV[8], ARGV[9], version)
+
+local result = { version }
+for _, hex in ipairs(evicted) do
+    table.insert(result, hex)
+end
+return result
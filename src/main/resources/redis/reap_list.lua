@@ -0,0 +1,79 @@
+-- list 대기열 reaper (ScreenshotQueueReaper)
+-- 1) visibility timeout 을 넘긴 항목은 processing 에서 빼서 pending 의 다음 차례(RPUSH)로 다시 넣고 재시도 횟수 증가
+--    재시도 횟수가 maxAttempts 에 닿으면 dead-letter 목록으로 이동 (상태 DEAD)
+-- 2) processing:{id} 에 있는데 가져간 시각이 없는 항목(워커가 직접 RPOPLPUSH 한 경우)은 지금 시각으로 기록
+-- 3) 지표 계산
+-- 사용자 목록은 SSCAN 으로 batch 개씩만 봄 → 스크립트 한 번이 Redis 를 붙잡는 시간이 사용자 수에 비례하지 않음
+-- ScreenshotQueueReaper 가 cursor 가 0 으로 돌아올 때까지 이어서 호출, 1) 과 사용자와 무관한 지표는 첫 호출(cursor 0)에서만
+-- (1) 을 사용자 확인보다 먼저 하므로 batch 별 대기/처리 중 개수는 옮긴 뒤의 값)
+-- pending:{id} / processing:{id} / screenshot:status:{id}:{imageId} 는 넘겨받은 접두어(ScreenshotQueueService.PREFIX_*)로 만듦
+-- (KEYS 로 선언할 수 없는 사용자별 키 → 단일 노드 Redis 전용)
+--
+-- KEYS[1] screenshot:queue:users, KEYS[2] screenshot:claimed, KEYS[3] screenshot:retries, KEYS[4] screenshot:dead
+-- ARGV[1] 현재 시각(ms), ARGV[2] visibility timeout(ms), ARGV[3] 최대 시도 횟수, ARGV[4] 상태 TTL(초)
+-- ARGV[5] dead-letter 최대 보관 개수, ARGV[6] 사용자 SSCAN cursor, ARGV[7] 한 번에 확인할 최대 개수
+-- ARGV[8] pending 접두어, ARGV[9] processing 접두어, ARGV[10] 상태 키 접두어
+--
+-- 반환: { 재대기 개수, dead-letter 개수, 이 batch 사용자의 대기 중 개수, 이 batch 사용자의 처리 중 개수,
+--         가장 오래된 처리 시작 시각(ms, 없으면 0), dead-letter 목록 길이, 다음 cursor }
+-- (cursor 0 이 아닌 호출은 재대기/dead-letter/시각/길이가 0)
+
+local now = tonumber(ARGV[1])
+local maxAttempts = tonumber(ARGV[3])
+local pendingPrefix, processingPrefix, statusPrefix = ARGV[8], ARGV[9], ARGV[10]
+local requeued, dead, oldestClaimedAt, deadLetters = 0, 0, 0, 0
+
+if ARGV[6] == '0' then
+    -- 1) 시간 초과 항목 재대기 / dead-letter (한 번에 최대 batch 개, 남은 건 다음 실행에서)
+    local expired = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', '(' .. (now - tonumber(ARGV[2])), 'LIMIT', 0, ARGV[7])
+    for _, member in ipairs(expired) do
+        redis.call('ZREM', KEYS[2], member)
+        local sep = string.find(member, ':', 1, true)
+        local userId = string.sub(member, 1, sep - 1)
+        local imageId = string.sub(member, sep + 1)
+
+        -- 이미 완료(ACK)된 항목이면 processing 에 없음
+        if redis.call('LREM', processingPrefix .. userId, 0, imageId) > 0 then
+            local attempts = redis.call('HINCRBY', KEYS[3], member, 1)
+            local statusKey = statusPrefix .. member
+            if attempts >= maxAttempts then
+                redis.call('HDEL', KEYS[3], member)
+                redis.call('LPUSH', KEYS[4], member)
+                redis.call('SET', statusKey, 'DEAD', 'EX', ARGV[4])
+                dead = dead + 1
+            else
+                -- 워커는 오른쪽(RPOP)부터 가져가므로 RPUSH 하면 바로 다음 차례
+                redis.call('RPUSH', pendingPrefix .. userId, imageId)
+                redis.call('SADD', KEYS[1], userId)
+                redis.call('SET', statusKey, 'QUEUED', 'EX', ARGV[4])
+                requeued = requeued + 1
+            end
+        end
+    end
+    redis.call('LTRIM', KEYS[4], 0, tonumber(ARGV[5]) - 1)
+
+    -- 3) 사용자와 무관한 지표
+    local oldest = redis.call('ZRANGE', KEYS[2], 0, 0, 'WITHSCORES')
+    if #oldest > 0 then
+        oldestClaimedAt = tonumber(oldest[2])
+    end
+    deadLetters = redis.call('LLEN', KEYS[4])
+end
+
+-- 2) 가져간 시각 기록 + 빈 사용자 정리 + 이 batch 의 대기/처리 중 개수
+local depth, inProgress = 0, 0
+local scan = redis.call('SSCAN', KEYS[1], ARGV[6], 'COUNT', ARGV[7])
+for _, userId in ipairs(scan[2]) do
+    local processing = redis.call('LRANGE', processingPrefix .. userId, 0, -1)
+    local pending = redis.call('LLEN', pendingPrefix .. userId)
+    if #processing == 0 and pending == 0 then
+        redis.call('SREM', KEYS[1], userId)
+    end
+    for _, imageId in ipairs(processing) do
+        redis.call('ZADD', KEYS[2], 'NX', now, userId .. ':' .. imageId)
+    end
+    depth = depth + pending
+    inProgress = inProgress + #processing
+end
+
+return { requeued, dead, depth, inProgress, oldestClaimedAt, deadLetters, scan[1] }
@@ -0,0 +1,101 @@
+-- stream 대기열 reaper (ScreenshotQueueReaper)
+-- visibility timeout 을 넘긴 미완료 항목
+-- - 배달 횟수가 maxAttempts 미만: 상태를 QUEUED 로 되돌림 (다음 claim 때 XAUTOCLAIM 으로 재배달)
+--   재배달 전까지는 PEL 에 idle 인 채로 남아 다음 실행에도 다시 나옴 → 상태가 이미 QUEUED 면 건너뜀
+--   (claim 이 가져가면 PROCESSING 이 되므로 재배달된 뒤 다시 멈춘 경우만 다시 셈)
+-- - maxAttempts 이상: 스트림에서 빼고(XACK + XDEL) dead-letter 목록으로 이동 (상태 DEAD), overflow 다음 항목 올림
+-- 사용자 목록은 SSCAN 으로 batch 개씩만 봄 (reap_list.lua 와 같음) - 시간 초과 처리와 스트림 지표는 첫 호출(cursor 0)에서만
+-- 사용자별 키(screenshot:inflight/overflow/entries:{id})는 ScreenshotQueueService.queueKeys 와 같은 순서로, 넘겨받은 접두어로 만듦
+-- (KEYS 로 선언할 수 없는 사용자별 키 → 단일 노드 Redis 전용)
+--
+-- KEYS[1] 스트림, KEYS[2] screenshot:queue:users, KEYS[3] screenshot:dead
+-- ARGV[1] 컨슈머 그룹, ARGV[2] visibility timeout(ms), ARGV[3] 최대 시도 횟수, ARGV[4] 상태 TTL(초)
+-- ARGV[5] dead-letter 최대 보관 개수, ARGV[6] 한 번에 확인할 최대 개수, ARGV[7] 사용자 SSCAN cursor
+-- ARGV[8] inflight 접두어, ARGV[9] overflow 접두어, ARGV[10] entries 접두어, ARGV[11] 상태 키 접두어
+--
+-- 반환: { 재대기 개수, dead-letter 개수, 대기 중 개수(스트림 + 이 batch 사용자의 overflow), 처리 중 개수,
+--         가장 오래된 처리 중 항목 시각(ms, 없으면 0), dead-letter 목록 길이, 다음 cursor }
+-- (cursor 0 이 아닌 호출은 이 batch 의 overflow 개수와 cursor 만 채움)
+
+local maxAttempts = tonumber(ARGV[3])
+local inflightPrefix, overflowPrefix, entriesPrefix, statusPrefix = ARGV[8], ARGV[9], ARGV[10], ARGV[11]
+
+local function user_keys(userId)
+    return { KEYS[1], inflightPrefix .. userId, overflowPrefix .. userId, entriesPrefix .. userId, KEYS[2] }
+end
+
+local function entry_fields(entryId)
+    local found = redis.call('XRANGE', KEYS[1], entryId, entryId)
+    if #found == 0 then
+        return nil, nil
+    end
+    local fields = found[1][2]
+    local userId, imageId
+    for i = 1, #fields, 2 do
+        if fields[i] == 'userId' then
+            userId = fields[i + 1]
+        elseif fields[i] == 'imageId' then
+            imageId = fields[i + 1]
+        end
+    end
+    return userId, imageId
+end
+
+-- 2) 빈 사용자 정리 + 이 batch 의 overflow 대기 개수 → overflow 개수, 다음 cursor
+local function scan_users()
+    local overflow = 0
+    local scan = redis.call('SSCAN', KEYS[2], ARGV[7], 'COUNT', ARGV[6])
+    for _, userId in ipairs(scan[2]) do
+        if redis.call('HLEN', entriesPrefix .. userId) == 0 then
+            redis.call('SREM', KEYS[2], userId)
+        else
+            overflow = overflow + redis.call('LLEN', overflowPrefix .. userId)
+        end
+    end
+    return overflow, scan[1]
+end
+
+if ARGV[7] ~= '0' then
+    local overflow, cursor = scan_users()
+    return { 0, 0, overflow, 0, 0, 0, cursor }
+end
+
+-- 1) 시간 초과 항목: { {id, 컨슈머, idle(ms), 배달 횟수}, ... }
+local requeued, dead = 0, 0
+local stuck = redis.call('XPENDING', KEYS[1], ARGV[1], 'IDLE', ARGV[2], '-', '+', ARGV[6])
+for _, p in ipairs(stuck) do
+    local entryId, deliveries = p[1], tonumber(p[4])
+    local userId, imageId = entry_fields(entryId)
+    if not userId then
+        -- 본문이 지워진 항목은 PEL 에서만 정리
+        redis.call('XACK', KEYS[1], ARGV[1], entryId)
+    else
+        local member = userId .. ':' .. imageId
+        local statusKey = statusPrefix .. member
+        if deliveries >= maxAttempts then
+            stream_release(user_keys(userId), ARGV[1], userId, imageId, entryId)
+            redis.call('LPUSH', KEYS[3], member)
+            redis.call('SET', statusKey, 'DEAD', 'EX', ARGV[4])
+            dead = dead + 1
+        elseif redis.call('GET', statusKey) ~= 'QUEUED' then
+            redis.call('SET', statusKey, 'QUEUED', 'EX', ARGV[4])
+            requeued = requeued + 1
+        end
+    end
+end
+redis.call('LTRIM', KEYS[3], 0, tonumber(ARGV[5]) - 1)
+
+-- dead-letter 로 빼면서 overflow 에서 올린 항목까지 반영된 뒤에 사용자 확인
+local overflow, cursor = scan_users()
+
+-- 3) 지표: { 처리 중 개수, 가장 작은 ID, 가장 큰 ID, 컨슈머별 개수 }
+local summary = redis.call('XPENDING', KEYS[1], ARGV[1])
+local inProgress = tonumber(summary[1])
+local oldestAt = 0
+if inProgress > 0 and summary[2] then
+    -- 항목 ID 의 앞부분이 추가된 시각(ms)
+    oldestAt = tonumber(string.match(summary[2], '^(%d+)'))
+end
+local depth = redis.call('XLEN', KEYS[1]) - inProgress + overflow
+
+return { requeued, dead, depth, inProgress, oldestAt, redis.call('LLEN', KEYS[3]), cursor }
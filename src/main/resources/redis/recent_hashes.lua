@@ -0,0 +1,46 @@
+-- 최근 해시 목록 공통 함수 (다른 스크립트 앞에 붙여서 로드됨)
+-- 구조
+--   user:{id}:recentHashes          ZSET  member = 해시 hex, score = 목록 버전 (추가 순서)
+--   user:{id}:recentHashes:imageIds HASH  해시 hex → imageId
+--   user:{id}:recentHashes:version  STRING 변경할 때마다 INCR (로컬 해밍 인덱스 동기화용)
+-- 같은 해시는 ZADD 가 점수만 갱신하므로 중복 제거에 목록 전체를 읽을 필요가 없고,
+-- 길이 초과분은 ZPOPMIN 한 번으로 가장 오래된 것부터 꺼낸다 (목록 길이와 무관하게 왕복 1회)
+
+-- @return 새 버전, 밀려난 해시 hex 목록
+local function put_recent(zsetKey, idsKey, versionKey, planePrefix, hashHex, imageId, plane,
+                          maxRecent, ttlPlane, ttlRecent)
+    local version = redis.call('INCR', versionKey)
+    redis.call('ZADD', zsetKey, version, hashHex)
+    redis.call('HSET', idsKey, hashHex, imageId)
+
+    if plane ~= '' then
+        redis.call('SET', planePrefix .. hashHex, plane, 'EX', ttlPlane)
+    end
+
+    local evicted = {}
+    local overflow = redis.call('ZCARD', zsetKey) - maxRecent
+    if overflow > 0 then
+        -- { member1, score1, member2, score2, ... }
+        local popped = redis.call('ZPOPMIN', zsetKey, overflow)
+        for i = 1, #popped, 2 do
+            local hex = popped[i]
+            redis.call('HDEL', idsKey, hex)
+            redis.call('DEL', planePrefix .. hex)
+            table.insert(evicted, hex)
+        end
+    end
+
+    redis.call('EXPIRE', zsetKey, ttlRecent)
+    redis.call('EXPIRE', idsKey, ttlRecent)
+    redis.call('EXPIRE', versionKey, ttlRecent)
+    return version, evicted
+end
+
+
+-- 다른 인스턴스의 로컬 해밍 인덱스 무효화 (NearCacheInvalidator) - channel 이 빈 값이면 생략
+-- 메시지: "{nodeId}|RECENT|{userId}|" .. 새 버전 (받는 쪽은 로컬 버전이 더 낮을 때만 버림)
+local function publish_recent(channel, messagePrefix, version)
+    if channel ~= '' then
+        redis.call('PUBLISH', channel, messagePrefix .. version)
+    end
+end
@@ -0,0 +1,25 @@
+-- 최근 해시 목록 전체 조회 (로컬 해밍 인덱스 재구성용, 버전과 목록을 같은 시점으로 읽음)
+--
+-- KEYS[1] user:{id}:recentHashes
+-- KEYS[2] user:{id}:recentHashes:imageIds
+-- KEYS[3] user:{id}:recentHashes:version
+--
+-- 반환: { 버전, 해시 hex, imageId, 해시 hex, imageId, ... } (오래된 것부터)
+
+local version = tonumber(redis.call('GET', KEYS[3]) or '0')
+local result = { version }
+
+local imageIds = {}
+local flat = redis.call('HGETALL', KEYS[2])
+for i = 1, #flat, 2 do
+    imageIds[flat[i]] = flat[i + 1]
+end
+
+for _, hex in ipairs(redis.call('ZRANGE', KEYS[1], 0, -1)) do
+    local imageId = imageIds[hex]
+    if imageId then
+        table.insert(result, hex)
+        table.insert(result, imageId)
+    end
+end
+return result
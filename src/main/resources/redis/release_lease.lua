@@ -0,0 +1,11 @@
+-- 리더 lease 반납 (SseFanout 종료 시) - 내 lease 일 때만 지움
+--
+-- KEYS[1] lease 키
+-- ARGV[1] 인스턴스 ID
+--
+-- 반환: 지운 키 수
+
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('DEL', KEYS[1])
+end
+return 0
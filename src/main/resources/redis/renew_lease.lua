@@ -0,0 +1,12 @@
+-- 리더 lease 갱신 (SseFanout.maintainLease)
+--
+-- KEYS[1] lease 키
+-- ARGV[1] 인스턴스 ID, ARGV[2] lease TTL(ms)
+--
+-- 반환: 1 = 아직 내 lease 라서 연장함, 0 = 만료됐거나 다른 인스턴스가 가져감
+
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    redis.call('PEXPIRE', KEYS[1], ARGV[2])
+    return 1
+end
+return 0
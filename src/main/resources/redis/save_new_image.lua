@@ -0,0 +1,62 @@
+-- 신규 스크린샷 저장 (ScreenshotImageCacheService.saveNewImage)
+-- 이미지 ID 발급부터 pending 큐 등록까지 한 번의 왕복 + 원자적으로 처리
+-- (같은 사용자의 동시 업로드가 최근 목록 갱신 사이에 끼어들지 않음)
+--
+-- KEYS[1] user:{id}:imageSeq
+-- KEYS[2] user:{id}:recentHashes
+-- KEYS[3] user:{id}:recentHashes:imageIds
+-- KEYS[4] user:{id}:recentHashes:version
+-- KEYS[5] coalesce:due, KEYS[6] coalesce:first (coalesce.lua)
+-- KEYS[7..] 분석 대기열 키 (screenshot_queue.lua 참고)
+-- ARGV[1] 사용자 키 접두어 "user:{id}"         → 평면/원본 키는 새 ID 가 정해진 뒤 여기서 만든다
+-- ARGV[2] 상태 키 접두어 "screenshot:status:{id}:"
+-- ARGV[3] 해시 hex (64자)
+-- ARGV[4] 밝기 평면 바이트 (빈 값이면 저장 안 함)
+-- ARGV[5] 원본 바이트
+-- ARGV[6] 원본 Content-Type (빈 값이면 저장 안 함)
+-- ARGV[7] 최근 목록 최대 길이
+-- ARGV[8] 평면 TTL(초), ARGV[9] 원본/상태 TTL(초), ARGV[10] 최근 목록 TTL(초)
+-- ARGV[11] 대기열 backend ('list' | 'stream'), ARGV[12] userId, ARGV[13] 사용자별 동시 처리 개수 (stream)
+-- ARGV[14] 묶기 window(ms, 0 이면 바로 대기열로), ARGV[15] 묶기 maxLatency(ms), ARGV[16] 현재 시각(ms)
+-- ARGV[17] near-cache 무효화 채널 (빈 값이면 PUBLISH 안 함), ARGV[18] 무효화 메시지 접두어 "{nodeId}|RECENT|{userId}|"
+--
+-- 반환: { 새 이미지 ID, 최근 목록 버전, 길이 제한으로 밀려난 해시 hex ... }
+
+local userPrefix = ARGV[1]
+
+-- 1) 이미지 ID 발급
+local imageId = redis.call('INCR', KEYS[1])
+
+-- 2) 최근 해시 목록 + 밝기 평면 (recent_hashes.lua)
+local version, evicted = put_recent(KEYS[2], KEYS[3], KEYS[4], userPrefix .. ':plane:', ARGV[3], imageId,
+        ARGV[4], tonumber(ARGV[7]), ARGV[8], ARGV[10])
+publish_recent(ARGV[17], ARGV[18], version)
+
+-- 3) 원본 바이트 + Content-Type
+local originalKey = userPrefix .. ':img:' .. imageId
+redis.call('SET', originalKey, ARGV[5], 'EX', ARGV[9])
+if ARGV[6] ~= '' then
+    redis.call('SET', originalKey .. ':contentType', ARGV[6], 'EX', ARGV[9])
+end
+
+-- 4) 분석 대기열 등록 + 상태 (screenshot_queue.lua)
+--    묶기 window 가 있으면 바로 넣지 않고 coalesce:due 에 올려 두고 상태 COALESCING
+--    (그 사이 비슷한 프레임은 원본만 덮어쓰고, ScreenshotCoalescer 가 마감이 지나면 대기열에 넣음)
+local window = tonumber(ARGV[14])
+if window > 0 then
+    coalesce_hold(KEYS[5], KEYS[6], ARGV[12] .. ':' .. imageId, tonumber(ARGV[16]), window, tonumber(ARGV[15]))
+    redis.call('SET', ARGV[2] .. imageId, 'COALESCING', 'EX', ARGV[9])
+else
+    local queueKeys = {}
+    for i = 7, #KEYS do
+        table.insert(queueKeys, KEYS[i])
+    end
+    enqueue_image(ARGV[11], queueKeys, ARGV[12], imageId, tonumber(ARGV[13]))
+    redis.call('SET', ARGV[2] .. imageId, 'QUEUED', 'EX', ARGV[9])
+end
+
+local result = { imageId, version }
+for _, hex in ipairs(evicted) do
+    table.insert(result, hex)
+end
+return result
@@ -0,0 +1,62 @@
+-- 분석 대기열 공통 함수 (다른 스크립트 앞에 붙여서 로드됨)
+-- backend = 'list'   : pending:{id} 리스트 (LPUSH, 워커가 RPOPLPUSH 로 processing:{id} 로 이동)
+--   keys = { pending:{id}, screenshot:queue:users }
+-- backend = 'stream' : 전역 스트림 + 컨슈머 그룹, 사용자별 동시 처리 개수 제한으로 공정하게 분배
+--   keys = { 스트림, screenshot:inflight:{id}, screenshot:overflow:{id}, screenshot:entries:{id},
+--            screenshot:queue:users }
+--   inflight  : 스트림에 올라가 있고 아직 ACK 안 된 이 사용자 항목 수
+--   overflow  : 제한을 넘어서 스트림에 못 올라간 imageId (LPUSH, ACK 될 때마다 RPOP 으로 하나씩 올림)
+--   entries   : imageId → 스트림 항목 ID (overflow 에 있으면 빈 문자열) - 중복 확인/ACK 용
+-- screenshot:queue:users : 대기열에 항목이 있는 userId (reaper 가 사용자별 키를 찾고 지표를 계산할 때 사용)
+
+local function stream_add(keys, userId, imageId)
+    local entryId = redis.call('XADD', keys[1], '*', 'userId', userId, 'imageId', imageId)
+    redis.call('INCR', keys[2])
+    redis.call('HSET', keys[4], imageId, entryId)
+    return entryId
+end
+
+-- @return 새로 넣었으면 1, 이미 대기/처리 중이면 0 (stream 만 중복 확인)
+local function enqueue_image(backend, keys, userId, imageId, inFlightPerUser)
+    if backend ~= 'stream' then
+        redis.call('LPUSH', keys[1], imageId)
+        redis.call('SADD', keys[2], userId)
+        return 1
+    end
+    redis.call('SADD', keys[5], userId)
+
+    if redis.call('HEXISTS', keys[4], imageId) == 1 then
+        return 0
+    end
+    if tonumber(redis.call('GET', keys[2]) or '0') < inFlightPerUser then
+        stream_add(keys, userId, imageId)
+    else
+        redis.call('LPUSH', keys[3], imageId)
+        redis.call('HSET', keys[4], imageId, '')
+    end
+    return 1
+end
+
+-- ACK 또는 dead-letter 로 스트림에서 뺀 항목 정리 + 이 사용자의 overflow 에서 다음 항목 하나를 올림
+local function stream_release(keys, group, userId, imageId, entryId)
+    redis.call('HDEL', keys[4], imageId)
+    redis.call('XACK', keys[1], group, entryId)
+    redis.call('XDEL', keys[1], entryId)
+    if redis.call('DECR', keys[2]) < 0 then
+        redis.call('SET', keys[2], 0)
+    end
+
+    local nextImageId = redis.call('RPOP', keys[3])
+    if nextImageId then
+        stream_add(keys, userId, nextImageId)
+    end
+end
+
+-- @return 대기/처리 중이면 1
+local function is_queued(backend, keys, imageId)
+    if backend ~= 'stream' then
+        return redis.call('LPOS', keys[1], imageId) and 1 or 0
+    end
+    return redis.call('HEXISTS', keys[4], imageId)
+end
+
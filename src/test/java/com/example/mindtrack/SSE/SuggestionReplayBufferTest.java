@@ -0,0 +1,111 @@
+package com.example.mindtrack.SSE;
+
+import com.example.mindtrack.Config.SseHubProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SuggestionReplayBufferTest {
+
+    private static SuggestionReplayBuffer buffer(int capacity) {
+        SseHubProperties props = new SseHubProperties();
+        props.setReplayCapacity(capacity);
+        return new SuggestionReplayBuffer(props);
+    }
+
+    private static SseFrame frame(long id) {
+        return SseFrame.of("suggestions", String.valueOf(id), "{\"id\":" + id + "}", 3000);
+    }
+
+    private static List<Long> ids(SuggestionReplayBuffer.Replay replay) {
+        return replay.entries().stream().map(SuggestionReplayBuffer.Entry::eventId).toList();
+    }
+
+    // 처음 기록한 ID 바로 앞(id-1)까지만 온전함 → 그보다 오래된 Last-Event-ID 는 gap
+    @Test
+    void firstRecordSetsCompleteAfterToPreviousId() {
+        SuggestionReplayBuffer.Ring ring = buffer(10).ring(1L);
+        assertTrue(ring.record(10, frame(10)));
+
+        SuggestionReplayBuffer.Replay fromPrevious = ring.since(9);
+        assertEquals(List.of(10L), ids(fromPrevious));
+        assertFalse(fromPrevious.gap());
+
+        SuggestionReplayBuffer.Replay older = ring.since(8);
+        assertEquals(List.of(10L), ids(older));
+        assertTrue(older.gap());
+    }
+
+    // 아무것도 기록하지 않은 링은 무엇이 빠졌는지 모름 → 항상 gap
+    @Test
+    void emptyRingReportsGap() {
+        SuggestionReplayBuffer.Replay replay = buffer(10).ring(1L).since(5);
+        assertTrue(replay.entries().isEmpty());
+        assertTrue(replay.gap());
+    }
+
+    @Test
+    void duplicateIdIsNotRecordedTwice() {
+        SuggestionReplayBuffer.Ring ring = buffer(10).ring(1L);
+        SseFrame first = frame(10);
+        assertTrue(ring.record(10, first));
+        assertTrue(ring.record(11, frame(11)));
+        assertFalse(ring.record(10, frame(10)));
+
+        SuggestionReplayBuffer.Replay replay = ring.since(9);
+        assertEquals(List.of(10L, 11L), ids(replay));
+        assertSame(first, replay.entries().get(0).frame());
+    }
+
+    @Test
+    void sinceReturnsLaterEntriesOldestFirst() {
+        SuggestionReplayBuffer.Ring ring = buffer(10).ring(1L);
+        // suggestion id 는 다른 사용자와 공유하는 시퀀스라 띄엄띄엄 올 수 있음
+        for (long id : new long[] { 3, 5, 8, 13, 21 }) {
+            ring.record(id, frame(id));
+        }
+
+        assertEquals(List.of(8L, 13L, 21L), ids(ring.since(5)));
+        assertEquals(List.of(8L, 13L, 21L), ids(ring.since(6)));
+        assertFalse(ring.since(6).gap());
+
+        SuggestionReplayBuffer.Replay upToDate = ring.since(21);
+        assertTrue(upToDate.entries().isEmpty());
+        assertFalse(upToDate.gap());
+    }
+
+    // 용량을 넘어 밀려난 ID 이전부터 복구하면 gap, 밀려난 마지막 ID 이후부터면 gap 아님
+    @Test
+    void overflowReportsGapForEvictedRange() {
+        SuggestionReplayBuffer.Ring ring = buffer(3).ring(1L);
+        for (long id = 1; id <= 5; id++) {
+            assertTrue(ring.record(id, frame(id)));
+        }
+
+        SuggestionReplayBuffer.Replay beforeEvicted = ring.since(1);
+        assertEquals(List.of(3L, 4L, 5L), ids(beforeEvicted));
+        assertTrue(beforeEvicted.gap());
+
+        SuggestionReplayBuffer.Replay afterEvicted = ring.since(2);
+        assertEquals(List.of(3L, 4L, 5L), ids(afterEvicted));
+        assertFalse(afterEvicted.gap());
+
+        assertEquals(List.of(5L), ids(ring.since(4)));
+    }
+
+    @Test
+    void ringsAreKeptPerUser() {
+        SuggestionReplayBuffer buffer = buffer(10);
+        buffer.ring(1L).record(10, frame(10));
+
+        assertSame(buffer.ring(1L), buffer.ring(1L));
+        assertSame(buffer.lockFor(1L), buffer.lockFor(1L));
+        assertTrue(buffer.ring(2L).since(0).entries().isEmpty());
+        assertEquals(List.of(10L), ids(buffer.ring(1L).since(9)));
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.mindtrack.Service;
+
+import com.example.mindtrack.Config.SamplingControlProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.OptionalLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SamplingRateControllerTest {
+
+    private static final double EPS = 1e-9;
+
+    private SamplingControlProperties props;
+    private ScreenshotQueueReaper queueReaper;
+    private SimpleMeterRegistry meterRegistry;
+
+    // 기본값: idle-depth 50, busy-depth 500, idle (0.97 / 4 / 0.7 / 2s), busy (0.90 / 10 / 0.7 / 10s)
+    @BeforeEach
+    void setUp() {
+        props = new SamplingControlProperties();
+        queueReaper = mock(ScreenshotQueueReaper.class);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private SamplingRateController controller(long depth) {
+        when(queueReaper.queueDepth()).thenReturn(depth);
+        return new SamplingRateController(props, queueReaper, meterRegistry);
+    }
+
+    @Test
+    void idleQueueUsesIdleLevel() {
+        SamplingRateController.SamplingParams params = controller(0).paramsFor("user");
+
+        assertEquals(0.0, params.load(), EPS);
+        assertEquals(0.97, params.ssimThreshold(), EPS);
+        assertEquals(4, params.maxDistance());
+        assertEquals(0.7, params.minHashSimilarity(), EPS);
+        assertEquals(2000, params.uploadIntervalMs());
+    }
+
+    // idle-depth 와 busy-depth 중간 → idle 값과 busy 값의 중간
+    @Test
+    void halfLoadInterpolatesBetweenLevels() {
+        SamplingRateController.SamplingParams params = controller(275).paramsFor("user");
+
+        assertEquals(0.5, params.load(), EPS);
+        assertEquals(0.935, params.ssimThreshold(), EPS);
+        assertEquals(7, params.maxDistance());
+        assertEquals(0.7, params.minHashSimilarity(), EPS);
+        assertEquals(6000, params.uploadIntervalMs());
+    }
+
+    @Test
+    void busyQueueUsesBusyLevelAndClampsLoad() {
+        for (long depth : new long[] { 500, 100_000 }) {
+            SamplingRateController.SamplingParams params = controller(depth).paramsFor("user");
+
+            assertEquals(1.0, params.load(), EPS);
+            assertEquals(0.90, params.ssimThreshold(), EPS);
+            assertEquals(10, params.maxDistance());
+            assertEquals(10_000, params.uploadIntervalMs());
+        }
+    }
+
+    @Test
+    void disabledReturnsLegacyConstantsAndNeverThrottles() {
+        props.setEnabled(false);
+        SamplingRateController controller = controller(100_000);
+        controller.recordDedup("user", true);
+
+        SamplingRateController.SamplingParams params = controller.paramsFor("user");
+        assertEquals(0.0, params.load(), EPS);
+        assertEquals(0.95, params.ssimThreshold(), EPS);
+        assertEquals(6, params.maxDistance());
+        assertEquals(0.7, params.minHashSimilarity(), EPS);
+        assertEquals(2000, params.uploadIntervalMs());
+
+        assertFalse(controller.admit("user").isPresent());
+        assertFalse(controller.admit("user").isPresent());
+    }
+
+    // EWMA: hit → 0.2, hit → 0.36, miss → 0.288 (alpha 0.2)
+    @Test
+    void hitRateIsEwmaOfDedupResults() {
+        SamplingRateController controller = controller(0);
+        controller.recordDedup("user", true);
+        assertEquals(0.2, controller.paramsFor("user").hitRate(), EPS);
+        controller.recordDedup("user", true);
+        assertEquals(0.36, controller.paramsFor("user").hitRate(), EPS);
+        controller.recordDedup("user", false);
+        assertEquals(0.288, controller.paramsFor("user").hitRate(), EPS);
+
+        assertEquals(0.0, controller.paramsFor("other").hitRate(), EPS);
+    }
+
+    // 중복 비율은 업로드 간격 힌트만 늘리고 기준은 부하로만 결정 (한가하면 idle 기준 그대로)
+    @Test
+    void hitRateStretchesIntervalButNotThresholds() {
+        props.setHitRateAlpha(1.0);
+        SamplingRateController controller = controller(0);
+        controller.recordDedup("user", true);
+
+        SamplingRateController.SamplingParams params = controller.paramsFor("user");
+        assertEquals(1.0, params.hitRate(), EPS);
+        assertEquals(0.97, params.ssimThreshold(), EPS);
+        assertEquals(4, params.maxDistance());
+        // 2s × (1 + 1.0 × 2.0)
+        assertEquals(6000, params.uploadIntervalMs());
+    }
+
+    @Test
+    void uploadIntervalIsCappedAtMax() {
+        props.setHitRateAlpha(1.0);
+        props.setMaxUploadInterval(Duration.ofSeconds(20));
+        SamplingRateController controller = controller(500);
+        controller.recordDedup("user", true);
+
+        // 10s × (1 + 1.0 × 2.0) = 30s → max-upload-interval 20s 로 제한
+        assertEquals(20_000, controller.paramsFor("user").uploadIntervalMs());
+    }
+
+    // busy 에서 직전 업로드 이후 10s × 0.5 = 5s 안에 다시 오면 남은 시간만큼 거절
+    @Test
+    void throttlesWithinWindowWhenBusy() {
+        SamplingRateController controller = controller(500);
+
+        assertFalse(controller.admit("user").isPresent());
+        OptionalLong wait = controller.admit("user");
+        assertTrue(wait.isPresent());
+        assertTrue(wait.getAsLong() > 0 && wait.getAsLong() <= 5000, "wait=" + wait.getAsLong());
+
+        // 다른 사용자는 따로 셈
+        assertFalse(controller.admit("other").isPresent());
+    }
+
+    @Test
+    void doesNotThrottleBelowBusyOrWithoutTolerance() {
+        SamplingRateController notBusy = controller(499);
+        assertFalse(notBusy.admit("user").isPresent());
+        assertFalse(notBusy.admit("user").isPresent());
+
+        props.setThrottleTolerance(0);
+        SamplingRateController noTolerance = controller(500);
+        assertFalse(noTolerance.admit("user").isPresent());
+        assertFalse(noTolerance.admit("user").isPresent());
+    }
+
+    // 한가할 때 받은 업로드도 시각은 기록 → 바로 busy 가 되면 그 시각 기준으로 거절
+    @Test
+    void arrivalsBelowBusyStillStartTheWindow() {
+        when(queueReaper.queueDepth()).thenReturn(0L);
+        SamplingRateController controller = new SamplingRateController(props, queueReaper, meterRegistry);
+        assertFalse(controller.admit("user").isPresent());
+
+        when(queueReaper.queueDepth()).thenReturn(500L);
+        assertTrue(controller.admit("user").isPresent());
+    }
+
+    @Test
+    void registersLoadGauge() {
+        controller(275);
+        assertEquals(0.5, meterRegistry.get("screenshot.sampling.load").gauge().value(), EPS);
+    }
+}
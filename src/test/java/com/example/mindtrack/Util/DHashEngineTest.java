@@ -0,0 +1,104 @@
+package com.example.mindtrack.Util;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DHashEngineTest {
+
+    private static final int WIDTH = 17;
+    private static final int HEIGHT = 16;
+    private static final int THRESHOLD = 5;
+
+    private final DHashEngine engine = new DHashEngine(WIDTH, HEIGHT, THRESHOLD);
+
+    // 행 y 의 x-1 → x 비교가 비트 y * 16 + (x - 1) (word = 비트 / 64, 위치 = 비트 % 64)
+    @Test
+    void bitLayoutFollowsRowMajorComparisons() {
+        int[][] pixels = filled(100);
+        // (5,3) 이 밝으면 (5,3) → (6,3) 비교만 켜짐 (왼쪽이 오른쪽보다 threshold 초과로 밝을 때)
+        pixels[3][5] = 200;
+        // 마지막 행 마지막 비교 → 비트 255 (word 3 최상위 비트)
+        pixels[15][15] = 200;
+
+        ImageHash hash = engine.hash(gray(pixels));
+
+        int bit = 3 * 16 + (6 - 1);
+        assertEquals(1L << bit, hash.w0());
+        assertEquals(0L, hash.w1());
+        assertEquals(0L, hash.w2());
+        assertEquals(1L << 63, hash.w3());
+    }
+
+    // 차이가 threshold 와 같으면 꺼짐, 넘으면 켜짐
+    @Test
+    void thresholdIsExclusive() {
+        int[][] pixels = filled(100);
+        pixels[0][0] = 100 + THRESHOLD;
+        pixels[1][0] = 100 + THRESHOLD + 1;
+
+        ImageHash hash = engine.hash(gray(pixels));
+
+        assertEquals(1L << 16, hash.w0());
+    }
+
+    @Test
+    void matchesReferenceOnRandomImages() {
+        Random random = new Random(5);
+        for (int n = 0; n < 50; n++) {
+            int[][] pixels = new int[HEIGHT][WIDTH];
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    pixels[y][x] = random.nextInt(256);
+                }
+            }
+            assertEquals(reference(pixels), engine.hash(gray(pixels)));
+        }
+    }
+
+    @Test
+    void rejectsGridWithoutFullHashWidth() {
+        assertThrows(IllegalArgumentException.class, () -> new DHashEngine(9, 8, THRESHOLD));
+        assertThrows(IllegalArgumentException.class, () -> new DHashEngine(1, 256, THRESHOLD));
+    }
+
+    private static ImageHash reference(int[][] pixels) {
+        long[] words = new long[ImageHash.WORDS];
+        int bit = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 1; x < WIDTH; x++) {
+                if (pixels[y][x - 1] - pixels[y][x] > THRESHOLD) {
+                    words[bit / 64] |= 1L << (bit % 64);
+                }
+                bit++;
+            }
+        }
+        return ImageHash.of(words);
+    }
+
+    private static int[][] filled(int value) {
+        int[][] pixels = new int[HEIGHT][WIDTH];
+        for (int[] row : pixels) {
+            Arrays.fill(row, value);
+        }
+        return pixels;
+    }
+
+    // 해시 그리드와 같은 크기의 그레이스케일 이미지 → 리사이즈 없이 그대로 비교
+    private static BufferedImage gray(int[][] pixels) {
+        BufferedImage img = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+        WritableRaster raster = img.getRaster();
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                raster.setSample(x, y, 0, pixels[y][x]);
+            }
+        }
+        return img;
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.mindtrack.Util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HammingIndexTest {
+
+    private static final int CAPACITY = 2000;
+
+    // 밴드 조회(d < 16)와 전체 탐색(d >= 16) 모두 선형 탐색과 같은 결과 (거리가 같으면 최신 항목)
+    @Test
+    void nearestMatchesLinearScan() {
+        Random random = new Random(42);
+        HammingIndex index = new HammingIndex(CAPACITY);
+        LinkedHashMap<ImageHash, Long> reference = new LinkedHashMap<>();
+
+        List<ImageHash> stored = new ArrayList<>();
+        long imageId = 0;
+        for (int i = 0; i < 300; i++) {
+            ImageHash hash = randomHash(random);
+            put(index, reference, ++imageId, hash);
+            stored.add(hash);
+            // 같은 화면에서 조금씩 바뀐 프레임처럼 가까운 해시도 섞음
+            for (int j = 0; j < 2; j++) {
+                ImageHash near = flipRandomBits(hash, 1 + random.nextInt(20), random);
+                put(index, reference, ++imageId, near);
+                stored.add(near);
+            }
+        }
+        // 이미 있는 해시를 다시 넣으면 새 imageId 로 교체되고 최신 항목이 됨
+        for (int i = 0; i < 50; i++) {
+            put(index, reference, ++imageId, stored.get(random.nextInt(stored.size())));
+        }
+        assertEquals(reference.size(), index.size());
+
+        int[] maxDistances = { 0, 1, 4, 8, 12, 15, 16, 20, 40, ImageHash.BITS };
+        for (int q = 0; q < 400; q++) {
+            ImageHash base = stored.get(random.nextInt(stored.size()));
+            ImageHash query = flipRandomBits(base, random.nextInt(24), random);
+            for (int maxDistance : maxDistances) {
+                assertSameMatch(linearScan(reference, query, maxDistance), index.nearest(query, maxDistance),
+                        "maxDistance=" + maxDistance);
+            }
+        }
+    }
+
+    // 15비트가 서로 다른 15개 밴드에 하나씩 흩어져 있어도 남은 한 밴드로 찾음 (비둘기집 경계)
+    @Test
+    void findsFifteenBitsSpreadAcrossBands() {
+        Random random = new Random(7);
+        HammingIndex index = new HammingIndex(16);
+        ImageHash stored = randomHash(random);
+        index.put(1L, stored);
+
+        for (int skipBand = 0; skipBand < 16; skipBand++) {
+            ImageHash query = stored;
+            for (int band = 0; band < 16; band++) {
+                if (band != skipBand) {
+                    query = flipBit(query, band * 16 + random.nextInt(16));
+                }
+            }
+            assertEquals(15, stored.distance(query));
+
+            HammingIndex.Match match = index.nearest(query, 15);
+            assertNotNull(match, "skipBand=" + skipBand);
+            assertEquals(1L, match.imageId());
+            assertEquals(15, match.distance());
+            assertNull(index.nearest(query, 14));
+        }
+    }
+
+    // 16비트가 16개 밴드에 하나씩이면 같은 밴드가 없음 → 전체 탐색 경로로만 찾을 수 있음
+    @Test
+    void fallsBackToFullScanFromSixteenBits() {
+        Random random = new Random(11);
+        HammingIndex index = new HammingIndex(16);
+        ImageHash stored = randomHash(random);
+        index.put(1L, stored);
+
+        ImageHash query = stored;
+        for (int band = 0; band < 16; band++) {
+            query = flipBit(query, band * 16 + random.nextInt(16));
+        }
+        assertEquals(16, stored.distance(query));
+
+        HammingIndex.Match match = index.nearest(query, 16);
+        assertNotNull(match);
+        assertEquals(1L, match.imageId());
+        assertEquals(16, match.distance());
+    }
+
+    @Test
+    void evictsOldestAndRefreshesRepeatedHash() {
+        Random random = new Random(3);
+        ImageHash a = randomHash(random);
+        ImageHash b = randomHash(random);
+        ImageHash c = randomHash(random);
+        ImageHash d = randomHash(random);
+
+        HammingIndex index = new HammingIndex(3);
+        index.put(1L, a);
+        index.put(2L, b);
+        index.put(3L, c);
+        // a 를 다시 넣으면 최신 항목 → 다음 추가 때 b 가 밀려남
+        index.put(4L, a);
+        index.put(5L, d);
+
+        assertEquals(3, index.size());
+        assertNull(index.nearest(b, 0));
+        assertEquals(4L, index.nearest(a, 0).imageId());
+        assertEquals(3L, index.nearest(c, 0).imageId());
+        assertEquals(5L, index.nearest(d, 0).imageId());
+    }
+
+    @Test
+    void rejectsNonPositiveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new HammingIndex(0));
+    }
+
+    private static void put(HammingIndex index, LinkedHashMap<ImageHash, Long> reference, long imageId,
+            ImageHash hash) {
+        index.put(imageId, hash);
+        reference.remove(hash);
+        reference.put(hash, imageId);
+    }
+
+    // 오래된 항목부터 보면서 거리가 같으면 뒤(최신) 항목으로 교체
+    private static HammingIndex.Match linearScan(Map<ImageHash, Long> reference, ImageHash query, int maxDistance) {
+        HammingIndex.Match best = null;
+        for (Map.Entry<ImageHash, Long> e : reference.entrySet()) {
+            int dist = query.distance(e.getKey());
+            if (dist <= maxDistance && (best == null || dist <= best.distance())) {
+                best = new HammingIndex.Match(e.getValue(), e.getKey(), dist);
+            }
+        }
+        return best;
+    }
+
+    private static void assertSameMatch(HammingIndex.Match expected, HammingIndex.Match actual, String message) {
+        if (expected == null) {
+            assertNull(actual, message);
+            return;
+        }
+        assertNotNull(actual, message);
+        assertEquals(expected.distance(), actual.distance(), message);
+        assertEquals(expected.imageId(), actual.imageId(), message);
+        assertEquals(expected.hash(), actual.hash(), message);
+    }
+
+    private static ImageHash randomHash(Random random) {
+        return new ImageHash(random.nextLong(), random.nextLong(), random.nextLong(), random.nextLong());
+    }
+
+    private static ImageHash flipRandomBits(ImageHash hash, int bits, Random random) {
+        ImageHash result = hash;
+        for (int i = 0; i < bits; i++) {
+            result = flipBit(result, random.nextInt(ImageHash.BITS));
+        }
+        return result;
+    }
+
+    private static ImageHash flipBit(ImageHash hash, int bit) {
+        long[] words = { hash.w0(), hash.w1(), hash.w2(), hash.w3() };
+        words[bit >>> 6] ^= 1L << (bit & 63);
+        return ImageHash.of(words);
+    }
+}
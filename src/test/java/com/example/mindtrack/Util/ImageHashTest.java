@@ -0,0 +1,57 @@
+package com.example.mindtrack.Util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ImageHashTest {
+
+    @Test
+    void hexRoundTrip() {
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            ImageHash hash = new ImageHash(random.nextLong(), random.nextLong(), random.nextLong(), random.nextLong());
+            String hex = hash.toHex();
+            assertEquals(64, hex.length());
+            assertEquals(hash, ImageHash.fromHex(hex));
+        }
+    }
+
+    // 워드 순서대로 16자씩, 앞자리 0 도 채워서 항상 64자 (음수 워드는 부호 없는 값)
+    @Test
+    void hexIsFixedWidthWordOrder() {
+        ImageHash hash = new ImageHash(1L, 0L, -1L, 0x0123456789abcdefL);
+        String hex = hash.toHex();
+        assertEquals("0000000000000001" + "0000000000000000" + "ffffffffffffffff" + "0123456789abcdef", hex);
+        assertEquals(hash, ImageHash.fromHex(hex));
+        assertEquals(new ImageHash(0, 0, 0, 0), ImageHash.fromHex("0".repeat(64)));
+    }
+
+    @Test
+    void rejectsInvalidHex() {
+        assertThrows(IllegalArgumentException.class, () -> ImageHash.fromHex(null));
+        assertThrows(IllegalArgumentException.class, () -> ImageHash.fromHex("0".repeat(63)));
+        assertThrows(IllegalArgumentException.class, () -> ImageHash.fromHex("0".repeat(65)));
+        assertThrows(NumberFormatException.class, () -> ImageHash.fromHex("g".repeat(64)));
+    }
+
+    @Test
+    void distanceCountsDifferingBits() {
+        ImageHash zero = new ImageHash(0, 0, 0, 0);
+        assertEquals(0, zero.distance(zero));
+        assertEquals(ImageHash.BITS, zero.distance(new ImageHash(-1L, -1L, -1L, -1L)));
+        assertEquals(4, zero.distance(new ImageHash(1L, 1L << 63, 1L << 10, 1L)));
+    }
+
+    @Test
+    void wordsByIndex() {
+        ImageHash hash = ImageHash.of(new long[] { 10, 20, 30, 40 });
+        assertEquals(10, hash.word(0));
+        assertEquals(40, hash.word(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> hash.word(4));
+        assertThrows(IllegalArgumentException.class, () -> ImageHash.of(new long[3]));
+    }
+}
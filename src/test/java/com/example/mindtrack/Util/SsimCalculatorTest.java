@@ -0,0 +1,165 @@
+package com.example.mindtrack.Util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SsimCalculatorTest {
+
+    private static final int SIZE = 128;
+    private static final double EPSILON = 1e-9;
+
+    private final Random random = new Random(17);
+
+    // 누적합 테이블 경로가 기존 세 번 순회(평균 → 분산 → 공분산) 계산과 같은 값
+    @Test
+    void uniformMatchesThreePassReference() {
+        SsimCalculator calculator = new SsimCalculator(SIZE, SIZE, 4, 4, false, 1.5);
+        for (int n = 0; n < 20; n++) {
+            byte[] a = randomPlane();
+            byte[] b = n % 2 == 0 ? randomPlane() : noisy(a, 5 + n);
+            assertEquals(threePass(a, b, 4, 4), calculator.compute(a, b), EPSILON);
+        }
+    }
+
+    @Test
+    void uniformMatchesReferenceForOtherTileGrids() {
+        byte[] a = randomPlane();
+        byte[] b = noisy(a, 30);
+        int[][] grids = { { 1, 1 }, { 8, 8 }, { 8, 4 }, { 16, 16 } };
+        for (int[] grid : grids) {
+            SsimCalculator calculator = new SsimCalculator(SIZE, SIZE, grid[0], grid[1], false, 1.5);
+            assertEquals(threePass(a, b, grid[0], grid[1]), calculator.compute(a, b), EPSILON,
+                    grid[0] + "x" + grid[1]);
+        }
+    }
+
+    // 스레드별 버퍼를 다시 써도 이전 계산 값이 섞이지 않음
+    @Test
+    void reusedBufferGivesSameResult() {
+        SsimCalculator calculator = new SsimCalculator(SIZE, SIZE, 4, 4, false, 1.5);
+        byte[] a = randomPlane();
+        byte[] b = noisy(a, 20);
+        byte[] c = randomPlane();
+
+        double first = calculator.compute(a, b);
+        calculator.compute(c, a);
+        assertEquals(first, calculator.compute(a, b), 0.0);
+    }
+
+    @Test
+    void identicalPlanesAreOne() {
+        byte[] a = randomPlane();
+        assertEquals(1.0, new SsimCalculator(SIZE, SIZE, 4, 4, false, 1.5).compute(a, a.clone()), EPSILON);
+        assertEquals(1.0, new SsimCalculator(SIZE, SIZE, 4, 4, true, 1.5).compute(a, a.clone()), EPSILON);
+    }
+
+    // sigma 가 타일보다 훨씬 크면 가중치가 거의 균등 → 누적합 경로와 같은 값에 수렴
+    @Test
+    void wideGaussianApproachesUniform() {
+        byte[] a = randomPlane();
+        byte[] b = noisy(a, 40);
+        double uniform = new SsimCalculator(SIZE, SIZE, 4, 4, false, 1.5).compute(a, b);
+        double gaussian = new SsimCalculator(SIZE, SIZE, 4, 4, true, 1e6).compute(a, b);
+        assertEquals(uniform, gaussian, 1e-6);
+    }
+
+    @Test
+    void moreNoiseLowersSimilarity() {
+        SsimCalculator calculator = new SsimCalculator(SIZE, SIZE, 4, 4, false, 1.5);
+        byte[] a = randomPlane();
+        assertTrue(calculator.compute(a, noisy(a, 5)) > calculator.compute(a, noisy(a, 60)));
+    }
+
+    @Test
+    void rejectsInvalidInput() {
+        SsimCalculator calculator = new SsimCalculator(SIZE, SIZE, 4, 4, false, 1.5);
+        assertThrows(IllegalArgumentException.class, () -> calculator.compute(new byte[10], new byte[SIZE * SIZE]));
+        assertThrows(IllegalArgumentException.class, () -> new SsimCalculator(SIZE, SIZE, 0, 4, false, 1.5));
+        assertThrows(IllegalArgumentException.class, () -> new SsimCalculator(SIZE, SIZE, 4, 4, true, 0));
+    }
+
+    /**
+     * 누적합 테이블 도입 전 SimilarityCheckService.computeSimilarity 의 타일 계산
+     * 타일마다 double[][] 로 복사한 뒤 평균, 분산, 공분산을 따로 순회
+     */
+    private static double threePass(byte[] p1, byte[] p2, int tilesX, int tilesY) {
+        final double c1 = 6.5025, c2 = 58.5225;
+        int tileW = SIZE / tilesX;
+        int tileH = SIZE / tilesY;
+        double total = 0.0;
+        int tiles = 0;
+        for (int ty = 0; ty < tilesY; ty++) {
+            for (int tx = 0; tx < tilesX; tx++) {
+                double[][] m1 = tile(p1, tx * tileW, ty * tileH, tileW, tileH);
+                double[][] m2 = tile(p2, tx * tileW, ty * tileH, tileW, tileH);
+                double mu1 = mean(m1);
+                double mu2 = mean(m2);
+                double sigma1Sq = covariance(m1, m1, mu1, mu1);
+                double sigma2Sq = covariance(m2, m2, mu2, mu2);
+                double sigma12 = covariance(m1, m2, mu1, mu2);
+                double numerator = (2 * mu1 * mu2 + c1) * (2 * sigma12 + c2);
+                double denominator = (mu1 * mu1 + mu2 * mu2 + c1) * (sigma1Sq + sigma2Sq + c2);
+                total += numerator / denominator;
+                tiles++;
+            }
+        }
+        return total / tiles;
+    }
+
+    private static double[][] tile(byte[] plane, int startX, int startY, int w, int h) {
+        double[][] m = new double[h][w];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                m[y][x] = plane[(startY + y) * SIZE + startX + x] & 0xFF;
+            }
+        }
+        return m;
+    }
+
+    private static double mean(double[][] m) {
+        double sum = 0;
+        for (double[] row : m) {
+            for (double v : row) {
+                sum += v;
+            }
+        }
+        return sum / (m.length * m[0].length);
+    }
+
+    private static double covariance(double[][] m1, double[][] m2, double mean1, double mean2) {
+        double sum = 0;
+        for (int y = 0; y < m1.length; y++) {
+            for (int x = 0; x < m1[0].length; x++) {
+                sum += (m1[y][x] - mean1) * (m2[y][x] - mean2);
+            }
+        }
+        return sum / (m1.length * m1[0].length);
+    }
+
+    // 완전 무작위보다 실제 화면에 가깝게 부드러운 그라데이션 + 잡음
+    private byte[] randomPlane() {
+        byte[] plane = new byte[SIZE * SIZE];
+        int gx = random.nextInt(3), gy = random.nextInt(3);
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                int v = (x * gx + y * gy) / 2 + random.nextInt(64);
+                plane[y * SIZE + x] = (byte) Math.min(255, v);
+            }
+        }
+        return plane;
+    }
+
+    private byte[] noisy(byte[] plane, int amplitude) {
+        byte[] out = new byte[plane.length];
+        for (int i = 0; i < plane.length; i++) {
+            int v = (plane[i] & 0xFF) + random.nextInt(2 * amplitude + 1) - amplitude;
+            out[i] = (byte) Math.max(0, Math.min(255, v));
+        }
+        return out;
+    }
+}